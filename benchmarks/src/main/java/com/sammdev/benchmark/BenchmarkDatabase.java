@@ -0,0 +1,94 @@
+package com.sammdev.benchmark;
+
+import com.sammdev.db.connection.ConnectionProvider;
+import com.sammdev.db.model.Customer;
+import com.sammdev.preCreation.SeedConfig;
+import com.sammdev.preCreation.SeedReport;
+import com.sammdev.preCreation.SeedingEngine;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Embedded H2 database in MySQL compatibility mode, created and seeded once per benchmark fork.
+ * Forks must be started with {@link #DB_URL_ARG}, {@link #DB_USER_ARG}, {@link #FETCH_SIZE_ARG}
+ * and {@link #POOL_SIZE_ARG} so the application connects to it.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+
+    public static final String DB_URL_ARG = "-Ddb.url=jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    public static final String DB_USER_ARG = "-Ddb.user=sa";
+    public static final String FETCH_SIZE_ARG = "-Ddb.streamingFetchSize=1000";
+    public static final String POOL_SIZE_ARG = "-Ddb.pool.maxSize=32";
+
+    // schema as left behind by MigrationRunner, the MySQL specific migrations themselves do not run on H2
+    private static final String[] SCHEMA = {
+            "DROP ALL OBJECTS",
+            "CREATE TABLE customers (id INT NOT NULL PRIMARY KEY, first_name VARCHAR(45) NOT NULL, " +
+                    "last_name VARCHAR(45) NOT NULL, address VARCHAR(150) NOT NULL, email VARCHAR(100) NOT NULL, " +
+                    "password VARCHAR(128))",
+            "CREATE UNIQUE INDEX customers_email ON customers (email)",
+            "CREATE TABLE balance (id INT NOT NULL PRIMARY KEY, balance BIGINT NOT NULL, version BIGINT NOT NULL DEFAULT 0)",
+            "CREATE TABLE payments (payment_id INT NOT NULL PRIMARY KEY, sender_id INT NOT NULL, " +
+                    "reciever_id INT NOT NULL, amount BIGINT NOT NULL, created_at DATETIME NOT NULL)",
+            "CREATE INDEX payments_sender_created ON payments (sender_id, created_at, payment_id)",
+            "CREATE INDEX payments_receiver_created ON payments (reciever_id, created_at, payment_id)",
+            "CREATE TABLE id_sequences (name VARCHAR(45) NOT NULL PRIMARY KEY, next_id INT NOT NULL)",
+            "CREATE TABLE payment_summaries (customer_id INT NOT NULL, month DATE NOT NULL, direction VARCHAR(8) NOT NULL, " +
+                    "total BIGINT NOT NULL, payment_count INT NOT NULL, PRIMARY KEY (customer_id, month, direction))",
+            "CREATE TABLE standing_orders (id INT NOT NULL PRIMARY KEY, sender_id INT NOT NULL, receiver_id INT NOT NULL, " +
+                    "amount BIGINT NOT NULL, period_months INT NOT NULL, first_execution DATETIME NOT NULL, " +
+                    "next_execution DATETIME NOT NULL, last_executed_at DATETIME, last_status VARCHAR(20))",
+            "CREATE INDEX standing_orders_due ON standing_orders (next_execution, id)",
+            "CREATE INDEX standing_orders_sender ON standing_orders (sender_id)"
+    };
+
+    @Param({"1000", "100000"})
+    public int customers;
+
+    @Param({"20"})
+    public int paymentsPerCustomer;
+
+    /**
+     * Seeded customers by offset, offset 0 is the busiest account of the skewed payment distribution
+     */
+    public Customer[] accounts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        try (Connection connection = ConnectionProvider.getInstance().getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String sql : SCHEMA) {
+                statement.execute(sql);
+            }
+        }
+
+        SeedReport report = new SeedingEngine().seed(new SeedConfig(
+                customers, paymentsPerCustomer, 42, SeedConfig.Distribution.SKEWED, 3.0,
+                1_000_000_000L, 10_000, 365, Runtime.getRuntime().availableProcessors(), 5_000));
+        System.out.println(report);
+
+        accounts = new Customer[customers];
+        try (Connection connection = ConnectionProvider.getInstance().getConnection();
+             Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT id, first_name, last_name, address, email, password FROM customers ORDER BY id");
+            for (int i = 0; resultSet.next(); i++) {
+                accounts[i] = new Customer(resultSet.getInt(1), resultSet.getString(2), resultSet.getString(3),
+                        resultSet.getString(4), resultSet.getString(5), resultSet.getString(6));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ConnectionProvider.getInstance().shutdown();
+    }
+}
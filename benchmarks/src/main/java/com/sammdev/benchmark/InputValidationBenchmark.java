@@ -0,0 +1,54 @@
+package com.sammdev.benchmark;
+
+import com.sammdev.enums.InputType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InputType.isValid on typical valid input
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InputValidationBenchmark {
+
+    @Param({"NAME", "EMAIL", "PASSWORD"})
+    public InputType inputType;
+
+    @Benchmark
+    @Threads(1)
+    public boolean isValidSingleThread() {
+        return inputType.isValid(sample());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean isValidEightThreads() {
+        return inputType.isValid(sample());
+    }
+
+    private String sample() {
+        switch (inputType) {
+            case NAME:
+                return "Kayleigh";
+            case EMAIL:
+                return "kayleigh_donnelly1234@gmail.com";
+            default:
+                return "Benchmark#2020";
+        }
+    }
+}
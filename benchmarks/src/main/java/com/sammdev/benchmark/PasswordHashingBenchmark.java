@@ -0,0 +1,68 @@
+package com.sammdev.benchmark;
+
+import com.sammdev.security.PasswordHashing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password hashing with the startup-calibrated PBKDF2 cost, and verification of legacy SHA-512 hashes
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordHashingBenchmark {
+
+    private static final String PASSWORD = "Benchmark#2020";
+
+    private final PasswordHashing passwordHashing = PasswordHashing.getInstance();
+    private String pbkdf2Hash;
+    private String legacyHash;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        passwordHashing.calibrate();
+        pbkdf2Hash = passwordHashing.hash(PASSWORD);
+        legacyHash = new BigInteger(1, MessageDigest.getInstance("SHA-512").digest(PASSWORD.getBytes())).toString(16);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String hashSingleThread() {
+        return passwordHashing.hash(PASSWORD);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String hashEightThreads() {
+        return passwordHashing.hash(PASSWORD);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean verifyPbkdf2() {
+        return passwordHashing.verify(PASSWORD, pbkdf2Hash);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean verifyLegacySha512() {
+        return passwordHashing.verify(PASSWORD, legacyHash);
+    }
+}
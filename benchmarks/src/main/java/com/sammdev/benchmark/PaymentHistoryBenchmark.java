@@ -0,0 +1,82 @@
+package com.sammdev.benchmark;
+
+import com.sammdev.db.model.PaymentPage;
+import com.sammdev.enums.PaymentHistoryType;
+import com.sammdev.service.CustomerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.sammdev.benchmark.BenchmarkDatabase.DB_URL_ARG;
+import static com.sammdev.benchmark.BenchmarkDatabase.DB_USER_ARG;
+import static com.sammdev.benchmark.BenchmarkDatabase.FETCH_SIZE_ARG;
+import static com.sammdev.benchmark.BenchmarkDatabase.POOL_SIZE_ARG;
+
+/**
+ * Sent payment history pages, for the busiest account of the skewed data set and for random accounts
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {DB_URL_ARG, DB_USER_ARG, FETCH_SIZE_ARG, POOL_SIZE_ARG})
+public class PaymentHistoryBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+
+    private final CustomerService customerService = CustomerService.getInstance();
+
+    @State(Scope.Thread)
+    public static class Accounts {
+        private SplittableRandom random;
+
+        @Setup
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public PaymentPage firstPageBusiestAccount(BenchmarkDatabase database) {
+        return customerService.getPaymentsPage(database.accounts[0], PaymentHistoryType.SEND, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public PaymentPage tenthPageBusiestAccount(BenchmarkDatabase database) {
+        PaymentPage page = customerService.getPaymentsPage(database.accounts[0], PaymentHistoryType.SEND, null, PAGE_SIZE);
+        for (int i = 1; i < 10 && page.hasNext(); i++) {
+            page = customerService.getPaymentsPage(database.accounts[0], PaymentHistoryType.SEND, page.getNext(), PAGE_SIZE);
+        }
+        return page;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public PaymentPage firstPageRandomAccountSingleThread(BenchmarkDatabase database, Accounts accounts) {
+        return firstPageRandomAccount(database, accounts);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public PaymentPage firstPageRandomAccountEightThreads(BenchmarkDatabase database, Accounts accounts) {
+        return firstPageRandomAccount(database, accounts);
+    }
+
+    private PaymentPage firstPageRandomAccount(BenchmarkDatabase database, Accounts accounts) {
+        int account = accounts.random.nextInt(database.accounts.length);
+        return customerService.getPaymentsPage(database.accounts[account], PaymentHistoryType.SEND, null, PAGE_SIZE);
+    }
+}
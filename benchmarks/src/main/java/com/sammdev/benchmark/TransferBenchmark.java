@@ -0,0 +1,75 @@
+package com.sammdev.benchmark;
+
+import com.sammdev.db.model.Customer;
+import com.sammdev.exception.NotEnoughMoneyException;
+import com.sammdev.exception.RecordNotFoundException;
+import com.sammdev.service.CustomerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.sammdev.benchmark.BenchmarkDatabase.DB_URL_ARG;
+import static com.sammdev.benchmark.BenchmarkDatabase.DB_USER_ARG;
+import static com.sammdev.benchmark.BenchmarkDatabase.FETCH_SIZE_ARG;
+import static com.sammdev.benchmark.BenchmarkDatabase.POOL_SIZE_ARG;
+
+/**
+ * CustomerService.transfer between random accounts, uncontended and with eight threads competing for rows
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {DB_URL_ARG, DB_USER_ARG, FETCH_SIZE_ARG, POOL_SIZE_ARG})
+public class TransferBenchmark {
+
+    private final CustomerService customerService = CustomerService.getInstance();
+
+    @State(Scope.Thread)
+    public static class Pair {
+        private SplittableRandom random;
+
+        @Setup
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean transferSingleThread(BenchmarkDatabase database, Pair pair) throws RecordNotFoundException {
+        return transfer(database, pair);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean transferEightThreads(BenchmarkDatabase database, Pair pair) throws RecordNotFoundException {
+        return transfer(database, pair);
+    }
+
+    private boolean transfer(BenchmarkDatabase database, Pair pair) throws RecordNotFoundException {
+        Customer[] accounts = database.accounts;
+        int sender = pair.random.nextInt(accounts.length);
+        int receiver = pair.random.nextInt(accounts.length - 1);
+        if (receiver >= sender) {
+            receiver++;
+        }
+        try {
+            customerService.transfer(accounts[sender], accounts[receiver].getId(), 1);
+            return true;
+        } catch (NotEnoughMoneyException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+CREATE TABLE `id_sequences` (
+  `name` varchar(45) NOT NULL,
+  `next_id` int(11) NOT NULL,
+  PRIMARY KEY (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1
\ No newline at end of file
@@ -1,12 +1,122 @@
 package com.sammdev;
 
+import com.sammdev.batch.BatchConfig;
+import com.sammdev.batch.BatchRunner;
+import com.sammdev.db.cache.EmailIndex;
+import com.sammdev.db.connection.ConnectionProvider;
+import com.sammdev.db.dao.PaymentWriter;
+import com.sammdev.db.migration.MigrationRunner;
+import com.sammdev.exception.IncorrectInputFormatException;
+import com.sammdev.exporter.ExportConfig;
+import com.sammdev.exporter.PaymentExporter;
+import com.sammdev.importer.CustomerImporter;
+import com.sammdev.importer.ImportConfig;
+import com.sammdev.ledger.Ledger;
 import com.sammdev.preCreation.PreCreation;
+import com.sammdev.scheduler.StandingOrderScheduler;
+import com.sammdev.security.PasswordHashing;
+import com.sammdev.server.BankingServer;
 import com.sammdev.service.BankingService;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import static com.sammdev.ledger.LedgerConfig.LEDGER_ENABLED;
+import static com.sammdev.scheduler.SchedulerConfig.SCHEDULER_ENABLED;
+
 public class Main {
 
+    // set in server mode, shutdown hooks of the JVM run concurrently so the one hook stops it first
+    private static volatile BankingServer server;
+
     public static void main(String[] args) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            // sessions must not start transfers while the services below them are shut down
+            BankingServer running = server;
+            if (running != null) {
+                running.shutdown();
+                System.out.println(running.getStats());
+            }
+            // standing orders being paid finish first, their payments go through the ledger and the writer
+            StandingOrderScheduler.getInstance().shutdown();
+            // the final ledger checkpoint and queued payment rows need the pool to be written
+            if (LEDGER_ENABLED) {
+                Ledger.getInstance().shutdown();
+            }
+            PaymentWriter.getInstance().shutdown();
+            ConnectionProvider.getInstance().shutdown();
+        }));
+
+        MigrationRunner.getInstance().migrate();
+        EmailIndex.getInstance().load();
+        PasswordHashing.getInstance().calibrate();
+        if (LEDGER_ENABLED) {
+            Ledger.getInstance().start();
+        }
+
+        // --import customers.csv imports customers from the file and exits
+        if (args.length == 2 && args[0].equals("--import")) {
+            importCustomers(args[1]);
+            return;
+        }
+        // --export payments.csv [customerId] exports payments of the customer or of the whole bank and exits
+        if ((args.length == 2 || args.length == 3) && args[0].equals("--export")) {
+            exportPayments(args[1], args.length == 3 ? args[2] : null);
+            return;
+        }
+        // --batch commands.txt runs the commands of the file and exits
+        if (args.length == 2 && args[0].equals("--batch")) {
+            runBatch(args[1]);
+            return;
+        }
+
         new PreCreation().preCreateCustomers();
-        new BankingService().defaultChoice();
+        if (SCHEDULER_ENABLED) {
+            StandingOrderScheduler.getInstance().start();
+        }
+
+        // --server serves the menus over TCP instead of the console
+        if (args.length == 1 && args[0].equals("--server")) {
+            serve();
+            return;
+        }
+        new BankingService().run();
+    }
+
+    private static void serve() {
+        server = new BankingServer();
+        try {
+            server.serve();
+        } catch (IOException e) {
+            System.err.println(e);
+        }
+    }
+
+    private static void runBatch(String file) {
+        try {
+            System.out.println(new BatchRunner().run(Paths.get(file), BatchConfig.fromSystemProperties()));
+        } catch (IOException e) {
+            System.err.println(e);
+        }
+    }
+
+    private static void exportPayments(String file, String customerId) {
+        PaymentExporter exporter = new PaymentExporter();
+        ExportConfig config = ExportConfig.fromSystemProperties();
+        try {
+            System.out.println(customerId == null
+                    ? exporter.exportAll(Paths.get(file), config)
+                    : exporter.exportCustomer(Paths.get(file), Integer.parseInt(customerId), config));
+        } catch (IOException | NumberFormatException e) {
+            System.err.println(e);
+        }
+    }
+
+    private static void importCustomers(String file) {
+        try {
+            System.out.println(new CustomerImporter().importFile(Paths.get(file), ImportConfig.fromSystemProperties()));
+        } catch (IOException | IncorrectInputFormatException e) {
+            System.err.println(e);
+        }
     }
 }
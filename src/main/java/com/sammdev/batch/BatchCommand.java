@@ -0,0 +1,208 @@
+package com.sammdev.batch;
+
+import com.sammdev.db.model.TransferItem;
+import com.sammdev.enums.PaymentHistoryType;
+import com.sammdev.exception.IncorrectInputFormatException;
+import com.sammdev.money.Money;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One line of a command file, fields are separated by whitespace:
+ *
+ * login <email> <password>
+ * balance <customerId>
+ * deposit <customerId> <amount>
+ * withdraw <customerId> <amount>
+ * transfer <senderId> <receiverId> <amount>
+ * payroll <senderId> <receiverId>:<amount> [<receiverId>:<amount> ...]
+ * history <customerId> sent|received [pageSize]
+ */
+public class BatchCommand {
+
+    public enum Type {
+        LOGIN, BALANCE, DEPOSIT, WITHDRAW, TRANSFER, PAYROLL, HISTORY
+    }
+
+    private static final int DEFAULT_PAGE_SIZE = 10;
+
+    private final long lineNumber;
+    private final String line;
+    private final Type type;
+    private String email, password;
+    private int customerId, receiverId;
+    private long amount;
+    private List<TransferItem> items;
+    private PaymentHistoryType historyType;
+    private int pageSize;
+
+    private BatchCommand(long lineNumber, String line, Type type) {
+        this.lineNumber = lineNumber;
+        this.line = line;
+        this.type = type;
+    }
+
+    /**
+     * @param lineNumber    line in the command file, for the result log
+     * @param line          command text
+     * @return              parsed command
+     * @throws IncorrectInputFormatException if the command is unknown or its arguments are invalid
+     */
+    public static BatchCommand parse(long lineNumber, String line) throws IncorrectInputFormatException {
+        String[] fields = line.trim().split("\\s+");
+        Type type;
+        try {
+            type = Type.valueOf(fields[0].toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IncorrectInputFormatException("Unknown command " + fields[0]);
+        }
+
+        BatchCommand command = new BatchCommand(lineNumber, line, type);
+        switch (type) {
+            case LOGIN:
+                expectFields(fields, 3, 3);
+                command.email = fields[1].toLowerCase();
+                command.password = fields[2];
+                break;
+            case BALANCE:
+                expectFields(fields, 2, 2);
+                command.customerId = parseId(fields[1]);
+                break;
+            case DEPOSIT:
+            case WITHDRAW:
+                expectFields(fields, 3, 3);
+                command.customerId = parseId(fields[1]);
+                command.amount = parseAmount(fields[2]);
+                break;
+            case TRANSFER:
+                expectFields(fields, 4, 4);
+                command.customerId = parseId(fields[1]);
+                command.receiverId = parseId(fields[2]);
+                command.amount = parseAmount(fields[3]);
+                if (command.customerId == command.receiverId) {
+                    throw new IncorrectInputFormatException("Sender and receiver must be different");
+                }
+                break;
+            case PAYROLL:
+                expectFields(fields, 3, Integer.MAX_VALUE);
+                command.customerId = parseId(fields[1]);
+                command.items = new ArrayList<>(fields.length - 2);
+                for (int i = 2; i < fields.length; i++) {
+                    int separator = fields[i].indexOf(':');
+                    if (separator < 0) {
+                        throw new IncorrectInputFormatException("Expected receiverId:amount, found " + fields[i]);
+                    }
+                    command.items.add(new TransferItem(parseId(fields[i].substring(0, separator)),
+                            parseAmount(fields[i].substring(separator + 1))));
+                }
+                break;
+            case HISTORY:
+                expectFields(fields, 3, 4);
+                command.customerId = parseId(fields[1]);
+                if (fields[2].equalsIgnoreCase("sent")) {
+                    command.historyType = PaymentHistoryType.SEND;
+                } else if (fields[2].equalsIgnoreCase("received")) {
+                    command.historyType = PaymentHistoryType.RECEIVED;
+                } else {
+                    throw new IncorrectInputFormatException("History type must be sent or received");
+                }
+                command.pageSize = fields.length == 4 ? parseId(fields[3]) : DEFAULT_PAGE_SIZE;
+                break;
+        }
+        return command;
+    }
+
+    private static void expectFields(String[] fields, int min, int max) throws IncorrectInputFormatException {
+        if (fields.length < min || fields.length > max) {
+            throw new IncorrectInputFormatException("Wrong number of arguments");
+        }
+    }
+
+    private static int parseId(String field) throws IncorrectInputFormatException {
+        try {
+            int value = Integer.parseInt(field);
+            if (value <= 0) {
+                throw new IncorrectInputFormatException("Expected a positive number, found " + field);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IncorrectInputFormatException("Expected a number, found " + field);
+        }
+    }
+
+    private static long parseAmount(String field) throws IncorrectInputFormatException {
+        long amount = Money.parse(field);
+        if (amount <= 0) {
+            throw new IncorrectInputFormatException("Amount must be higher than 0");
+        }
+        return amount;
+    }
+
+    /**
+     * Commands sharing a key are run in file order, so commands of one account are never reordered.
+     * Transfers and payrolls have the keys of the sender and of every receiver.
+     */
+    List<Integer> routingKeys() {
+        List<Integer> keys = new ArrayList<>();
+        keys.add(type == Type.LOGIN ? email.hashCode() : customerId);
+        if (type == Type.TRANSFER) {
+            keys.add(receiverId);
+        } else if (type == Type.PAYROLL) {
+            for (TransferItem item : items) {
+                keys.add(item.getReceiverId());
+            }
+        }
+        return keys;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * @return acting customer, the sender of a transfer
+     */
+    public int getCustomerId() {
+        return customerId;
+    }
+
+    public int getReceiverId() {
+        return receiverId;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * @return receivers and amounts of a payroll
+     */
+    public List<TransferItem> getItems() {
+        return items;
+    }
+
+    public PaymentHistoryType getHistoryType() {
+        return historyType;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+}
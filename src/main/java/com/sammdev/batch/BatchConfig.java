@@ -0,0 +1,34 @@
+package com.sammdev.batch;
+
+/**
+ * Settings of a batch run, read from system properties
+ */
+public class BatchConfig {
+
+    private final int workers;
+    private final int queueSize;
+
+    public BatchConfig(int workers, int queueSize) {
+        this.workers = workers;
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * -Dbatch.workers=cores        commands executed in parallel
+     * -Dbatch.queueSize=1024       commands read ahead per worker, bounds memory use
+     */
+    public static BatchConfig fromSystemProperties() {
+        return new BatchConfig(
+                Integer.getInteger("batch.workers", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("batch.queueSize", 1024)
+        );
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+}
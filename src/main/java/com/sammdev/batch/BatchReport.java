@@ -0,0 +1,67 @@
+package com.sammdev.batch;
+
+import com.sammdev.metrics.LatencyHistogram;
+
+/**
+ * Outcome counts, throughput and latency of a batch run
+ */
+public class BatchReport {
+    private final long succeeded, rejected, failed, invalid, elapsedNanos;
+    private final LatencyHistogram latency;
+
+    public BatchReport(long succeeded, long rejected, long failed, long invalid, long elapsedNanos,
+                       LatencyHistogram latency) {
+        this.succeeded = succeeded;
+        this.rejected = rejected;
+        this.failed = failed;
+        this.invalid = invalid;
+        this.elapsedNanos = elapsedNanos;
+        this.latency = latency;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * @return commands refused by business rules, e.g. not enough money or wrong password
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return commands that failed on a technical error
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return lines that could not be parsed, they were not executed
+     */
+    public long getInvalid() {
+        return invalid;
+    }
+
+    public double getCommandsPerSecond() {
+        long executed = succeeded + rejected + failed;
+        return elapsedNanos == 0 ? 0 : executed * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    /**
+     * @return latency of executed commands
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String toString() {
+        return "Executed " + (succeeded + rejected + failed) + " commands in " + elapsedNanos / 1_000_000 + " ms ("
+                + Math.round(getCommandsPerSecond()) + " commands/s): "
+                + succeeded + " succeeded, " + rejected + " rejected, " + failed + " failed, "
+                + invalid + " invalid lines\n"
+                + "Latency: " + latency;
+    }
+}
@@ -0,0 +1,306 @@
+package com.sammdev.batch;
+
+import com.sammdev.db.model.Customer;
+import com.sammdev.db.model.TransferBatchResult;
+import com.sammdev.exception.IncorrectInputFormatException;
+import com.sammdev.exception.LoginFailedException;
+import com.sammdev.exception.NotEnoughMoneyException;
+import com.sammdev.exception.RecordNotFoundException;
+import com.sammdev.importer.CsvLine;
+import com.sammdev.metrics.LatencyHistogram;
+import com.sammdev.money.Money;
+import com.sammdev.service.CustomerService;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a file of banking commands against CustomerService without the interactive menus,
+ * e.g. for bulk operations or to replay the traffic of an incident.
+ *
+ * Commands are spread over workers by account, commands of one account run in file order.
+ * A command touching accounts of several workers, like a transfer, is queued to each of them
+ * and runs once all of them reached it, so it is ordered with the commands of every account it touches.
+ * Every command gets a line in the result log next to the command file, the run ends with
+ * a throughput and latency summary.
+ */
+public class BatchRunner {
+
+    private final CustomerService customerService = CustomerService.getInstance();
+
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong invalid = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Executes all commands of the file and waits for them to finish
+     *
+     * @param commands  command file, one command per line, empty lines and lines starting with # are skipped
+     * @param config    number of workers and read ahead
+     * @return          outcome counts, throughput and latency
+     * @throws IOException if the file can not be read or the result log written
+     */
+    public BatchReport run(Path commands, BatchConfig config) throws IOException {
+        long start = System.nanoTime();
+        Path resultPath = commands.resolveSibling(commands.getFileName() + ".results.csv");
+
+        try (BufferedReader reader = Files.newBufferedReader(commands, StandardCharsets.UTF_8);
+             ResultLog results = new ResultLog(resultPath)) {
+            List<BlockingQueue<Task>> queues = new ArrayList<>();
+            List<Thread> workers = new ArrayList<>();
+            for (int i = 0; i < Math.max(1, config.getWorkers()); i++) {
+                BlockingQueue<Task> queue = new ArrayBlockingQueue<>(config.getQueueSize());
+                int index = i;
+                Thread worker = new Thread(() -> work(index, queue, results), "batch-worker-" + (i + 1));
+                queues.add(queue);
+                workers.add(worker);
+                worker.start();
+            }
+
+            boolean finished = false;
+            try {
+                long lineNumber = 0;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    String trimmed = line.trim();
+                    if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                        continue;
+                    }
+                    try {
+                        BatchCommand command = BatchCommand.parse(lineNumber, trimmed);
+                        Set<Integer> targets = new TreeSet<>();
+                        for (int key : command.routingKeys()) {
+                            targets.add(Math.floorMod(key, queues.size()));
+                        }
+                        // shared tasks are queued in file order everywhere, workers never wait for each other in a cycle
+                        Task task = new Task(command, targets.iterator().next(), targets.size());
+                        for (int target : targets) {
+                            queues.get(target).put(task);
+                        }
+                    } catch (IncorrectInputFormatException e) {
+                        invalid.incrementAndGet();
+                        results.write(lineNumber, trimmed, "INVALID", 0, e.getMessage());
+                    }
+                }
+                for (BlockingQueue<Task> queue : queues) {
+                    queue.put(Task.END_OF_INPUT);
+                }
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+                finished = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Batch run was interrupted");
+            } finally {
+                if (!finished) {
+                    abort(queues, workers);
+                }
+            }
+        }
+
+        return new BatchReport(succeeded.get(), rejected.get(), failed.get(), invalid.get(),
+                System.nanoTime() - start, latency.snapshot());
+    }
+
+    /**
+     * Drops the commands not started yet and waits for the workers to finish their current command,
+     * so the run ends and the result log is closed only after the last write. Called when reading fails.
+     */
+    private void abort(List<BlockingQueue<Task>> queues, List<Thread> workers) {
+        for (BlockingQueue<Task> queue : queues) {
+            // only this thread puts, after draining there is room for the end marker
+            List<Task> dropped = new ArrayList<>();
+            queue.drainTo(dropped);
+            // a worker may already wait at a shared task dropped from another queue
+            dropped.forEach(Task::cancel);
+            queue.offer(Task.END_OF_INPUT);
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            workers.forEach(Thread::interrupt);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void work(int index, BlockingQueue<Task> queue, ResultLog results) {
+        try {
+            for (Task task = queue.take(); task != Task.END_OF_INPUT; task = queue.take()) {
+                if (task.arrived == null) {
+                    runCommand(task.command, results);
+                    continue;
+                }
+                task.arrived.countDown();
+                if (task.owner == index) {
+                    // every other worker of the command has finished the commands queued before it
+                    task.arrived.await();
+                    try {
+                        if (!task.cancelled) {
+                            runCommand(task.command, results);
+                        }
+                    } finally {
+                        task.done.countDown();
+                    }
+                } else {
+                    task.done.await();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runCommand(BatchCommand command, ResultLog results) {
+        String status, detail;
+        long start = System.nanoTime();
+        try {
+            detail = execute(command);
+            status = "OK";
+            succeeded.incrementAndGet();
+        } catch (LoginFailedException | NotEnoughMoneyException | RecordNotFoundException e) {
+            detail = e.getMessage();
+            status = "REJECTED";
+            rejected.incrementAndGet();
+        } catch (RuntimeException e) {
+            detail = e.getMessage();
+            status = "FAILED";
+            failed.incrementAndGet();
+        }
+        long nanos = System.nanoTime() - start;
+        latency.record(nanos);
+
+        try {
+            results.write(command.getLineNumber(), command.getLine(), status, nanos, detail);
+        } catch (IOException e) {
+            // keep draining the queue, a stuck worker would block the reader
+            System.err.println(e);
+        }
+    }
+
+    /**
+     * @return short description of the result
+     */
+    private String execute(BatchCommand command)
+            throws LoginFailedException, NotEnoughMoneyException, RecordNotFoundException {
+        switch (command.getType()) {
+            case LOGIN:
+                return "customer " + customerService.authenticate(command.getEmail(), command.getPassword());
+            case BALANCE:
+                return Money.format(customerService.getCurrentBalance(customer(command.getCustomerId())));
+            case DEPOSIT:
+                customerService.deposit(customer(command.getCustomerId()), command.getAmount());
+                return "";
+            case WITHDRAW:
+                customerService.withdraw(customer(command.getCustomerId()), command.getAmount());
+                return "";
+            case TRANSFER:
+                customerService.transfer(customer(command.getCustomerId()), command.getReceiverId(),
+                        command.getAmount());
+                return "";
+            case PAYROLL:
+                TransferBatchResult result = customerService.transferBatch(customer(command.getCustomerId()),
+                        command.getItems());
+                return result.getCompleted() + " of " + result.size() + " paid";
+            case HISTORY:
+                return customerService.getPaymentsPage(customer(command.getCustomerId()), command.getHistoryType(),
+                        null, command.getPageSize()).getPayments().size() + " payments";
+            default:
+                throw new IllegalStateException("Unknown command " + command.getType());
+        }
+    }
+
+    /**
+     * Money operations only need the id, missing accounts are reported by the balance lookup
+     */
+    private Customer customer(int id) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        return customer;
+    }
+
+    /**
+     * Result of every command with its latency, shared by all workers
+     */
+    private static class ResultLog implements Closeable {
+        private final BufferedWriter writer;
+
+        private ResultLog(Path path) throws IOException {
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            writer.write("line,command,status,latency_us,detail");
+            writer.newLine();
+        }
+
+        private synchronized void write(long lineNumber, String command, String status, long nanos,
+                                        String detail) throws IOException {
+            writer.write(Long.toString(lineNumber));
+            writer.write(',');
+            writer.write(CsvLine.quote(command));
+            writer.write(',');
+            writer.write(status);
+            writer.write(',');
+            writer.write(Long.toString(nanos / 1_000));
+            writer.write(',');
+            writer.write(CsvLine.quote(detail == null ? "" : detail));
+            writer.newLine();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * Entry of a worker queue. A command of several workers is one task queued to each of them,
+     * run by its owner after all of them arrived, the others wait until it is done.
+     */
+    private static class Task {
+        // tells a worker that the file has been read completely
+        private static final Task END_OF_INPUT = new Task(null, 0, 1);
+
+        private final BatchCommand command;
+        private final int owner;
+        // null if the command belongs to one worker only
+        private final CountDownLatch arrived;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile boolean cancelled;
+
+        private Task(BatchCommand command, int owner, int workers) {
+            this.command = command;
+            this.owner = owner;
+            this.arrived = workers > 1 ? new CountDownLatch(workers) : null;
+        }
+
+        /**
+         * Releases workers waiting at the task without running its command
+         */
+        private void cancel() {
+            cancelled = true;
+            if (arrived != null) {
+                while (arrived.getCount() > 0) {
+                    arrived.countDown();
+                }
+            }
+            done.countDown();
+        }
+    }
+}
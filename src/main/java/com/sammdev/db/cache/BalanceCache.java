@@ -0,0 +1,118 @@
+package com.sammdev.db.cache;
+
+import com.sammdev.db.model.Balance;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sammdev.db.config.DbConfig.BALANCE_CACHE_SIZE;
+import static com.sammdev.db.config.DbConfig.BALANCE_CACHE_TTL_MS;
+
+/**
+ * Least recently used balances, keyed by account id.
+ * Entries are only ever replaced by a newer version of the same row and expire after db.balanceCacheTtlMs,
+ * so changes made by other processes sharing the database are seen after that time at the latest.
+ */
+public class BalanceCache {
+
+    private static final BalanceCache instance = new BalanceCache(BALANCE_CACHE_SIZE);
+
+    private final int maxSize;
+    private final long ttlNanos = TimeUnit.MILLISECONDS.toNanos(BALANCE_CACHE_TTL_MS);
+    private final Map<Integer, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong staleWrites = new AtomicLong();
+
+    private BalanceCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > BalanceCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static BalanceCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param id    account id
+     * @return      cached balance or null, also if it expired
+     */
+    public Balance get(int id) {
+        Balance balance = null;
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            if (entry != null && System.nanoTime() - entry.cachedAt < ttlNanos) {
+                balance = entry.balance;
+            }
+        }
+        if (balance == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return balance;
+    }
+
+    /**
+     * Stores balance unless a newer version of the same row is cached already
+     */
+    public void put(Balance balance) {
+        synchronized (entries) {
+            Entry cached = entries.get(balance.getId());
+            // an expired entry is replaced by the same version as well, which starts its time again
+            if (cached == null || cached.balance.getVersion() < balance.getVersion()
+                    || cached.balance.getVersion() == balance.getVersion() && System.nanoTime() - cached.cachedAt >= ttlNanos) {
+                entries.put(balance.getId(), new Entry(balance));
+            }
+        }
+    }
+
+    /**
+     * Drops the entry after a write found it stale
+     */
+    public void invalidate(int id) {
+        staleWrites.incrementAndGet();
+        synchronized (entries) {
+            entries.remove(id);
+        }
+    }
+
+    /**
+     * Drops the entry after this process overwrote the row without a version check
+     */
+    public void remove(int id) {
+        synchronized (entries) {
+            entries.remove(id);
+        }
+    }
+
+    public CacheStats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CacheStats(size, maxSize, hits.get(), misses.get(), evictions.get(), staleWrites.get());
+    }
+
+    private static class Entry {
+        private final Balance balance;
+        private final long cachedAt = System.nanoTime();
+
+        private Entry(Balance balance) {
+            this.balance = balance;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.sammdev.db.cache;
+
+/**
+ * Snapshot of cache counters
+ */
+public class CacheStats {
+    private final int size, maxSize;
+    private final long hits, misses, evictions, staleWrites;
+
+    public CacheStats(int size, int maxSize, long hits, long misses, long evictions, long staleWrites) {
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.staleWrites = staleWrites;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return writes rejected because the cached version was older than the row
+     */
+    public long getStaleWrites() {
+        return staleWrites;
+    }
+
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "size=" + size +
+                ", maxSize=" + maxSize +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                ", staleWrites=" + staleWrites +
+                ", hitRatio=" + getHitRatio() +
+                '}';
+    }
+}
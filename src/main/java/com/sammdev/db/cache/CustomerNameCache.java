@@ -0,0 +1,102 @@
+package com.sammdev.db.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sammdev.db.config.DbConfig.CUSTOMER_NAME_CACHE_SIZE;
+
+/**
+ * Least recently used display names ("first last"), keyed by customer id.
+ * Names changed by other application instances stay cached until evicted.
+ */
+public class CustomerNameCache {
+
+    private static final CustomerNameCache instance = new CustomerNameCache(CUSTOMER_NAME_CACHE_SIZE);
+
+    private final int maxSize;
+    private final Map<Integer, String> entries;
+
+    // incremented by every invalidation, names loaded before it may be outdated
+    private long invalidations;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private CustomerNameCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                if (size() > CustomerNameCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static CustomerNameCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param id    customer id
+     * @return      cached display name or null
+     */
+    public String get(int id) {
+        String name;
+        synchronized (entries) {
+            name = entries.get(id);
+        }
+        if (name == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return name;
+    }
+
+    /**
+     * @return value to pass to putAll, taken before the names are read from the database
+     */
+    public long getVersion() {
+        synchronized (entries) {
+            return invalidations;
+        }
+    }
+
+    /**
+     * Stores loaded names, unless a name was invalidated since the load started
+     *
+     * @param names     display names by customer id
+     * @param version   result of getVersion before the load
+     */
+    public void putAll(Map<Integer, String> names, long version) {
+        synchronized (entries) {
+            if (invalidations == version) {
+                entries.putAll(names);
+            }
+        }
+    }
+
+    /**
+     * Drops the entry after the customer's name was changed
+     */
+    public void invalidate(int id) {
+        synchronized (entries) {
+            invalidations++;
+            entries.remove(id);
+        }
+    }
+
+    public CacheStats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CacheStats(size, maxSize, hits.get(), misses.get(), evictions.get(), 0);
+    }
+}
@@ -0,0 +1,69 @@
+package com.sammdev.db.cache;
+
+import com.sammdev.db.dao.CustomerDao;
+
+import java.util.Locale;
+
+import static com.sammdev.db.config.DbConfig.EMAIL_INDEX_FALSE_POSITIVE_PROBABILITY;
+
+/**
+ * Bloom filter of registered emails.
+ * A negative answer is definite and needs no database round trip, a positive one must be confirmed by a query.
+ * Emails registered by other application instances after loading are not in the filter,
+ * the unique index on customers.email stays the final guard against duplicates.
+ * Emails are compared case-insensitively like by the column collation, so they are lower cased before hashing.
+ */
+public class EmailIndex {
+
+    private static final EmailIndex instance = new EmailIndex();
+
+    private volatile BloomFilter filter;
+
+    private EmailIndex() {
+        // hide constructor, singleton pattern
+    }
+
+    public static EmailIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * Builds the filter from all registered emails, called once at startup
+     */
+    public void load() {
+        CustomerDao customerDao = CustomerDao.getInstance();
+        // room to double in size before the false positive rate starts to climb
+        BloomFilter loaded = new BloomFilter(customerDao.countCustomers() * 2 + 1024, EMAIL_INDEX_FALSE_POSITIVE_PROBABILITY);
+        customerDao.forEachEmail(email -> loaded.add(normalize(email)));
+        filter = loaded;
+    }
+
+    /**
+     * @param email     email address
+     * @return          false if the email is certainly not registered
+     */
+    public boolean mightContain(String email) {
+        return getFilter().mightContain(normalize(email));
+    }
+
+    public void add(String email) {
+        getFilter().add(normalize(email));
+    }
+
+    private String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private BloomFilter getFilter() {
+        BloomFilter current = filter;
+        if (current == null) {
+            synchronized (this) {
+                if (filter == null) {
+                    load();
+                }
+                current = filter;
+            }
+        }
+        return current;
+    }
+}
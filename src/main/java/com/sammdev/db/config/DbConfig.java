@@ -1,7 +1,55 @@
 package com.sammdev.db.config;
 
 public class DbConfig {
-    public static final String DB_URL = "jdbc:mysql://localhost:3306/daoproject?serverTimezone=UTC";
-    public static final String DB_USER = "root";
-    public static final String DB_PASSWORD = "";
+    // statements are prepared on the server and cached per connection by the driver
+    public static final String DB_URL = System.getProperty("db.url",
+            "jdbc:mysql://localhost:3306/daoproject?serverTimezone=UTC&rewriteBatchedStatements=true" +
+                    "&useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048");
+    public static final String DB_USER = System.getProperty("db.user", "root");
+    public static final String DB_PASSWORD = System.getProperty("db.password", "");
+
+    // fetch size of queries reading whole tables, MIN_VALUE makes the MySQL driver stream rows one by one
+    public static final int STREAMING_FETCH_SIZE = Integer.getInteger("db.streamingFetchSize", Integer.MIN_VALUE);
+
+    // connection pool
+    public static final int POOL_MAX_SIZE = Integer.getInteger("db.pool.maxSize", 10);
+    public static final long POOL_ACQUIRE_TIMEOUT_MS = Long.getLong("db.pool.acquireTimeoutMs", 5_000);
+    public static final long POOL_VALIDATION_INTERVAL_MS = Long.getLong("db.pool.validationIntervalMs", 30_000);
+    public static final int POOL_VALIDATION_TIMEOUT_S = 2;
+
+    // number of ids reserved from id_sequences at once
+    public static final int ID_BLOCK_SIZE = Integer.getInteger("db.idBlockSize", 100);
+
+    // number of balances kept in memory
+    public static final int BALANCE_CACHE_SIZE = Integer.getInteger("db.balanceCacheSize", 10_000);
+    // cached balances older than this are read again, other processes sharing the database may have changed them
+    public static final long BALANCE_CACHE_TTL_MS = Long.getLong("db.balanceCacheTtlMs", 1_000);
+
+    // number of customer display names kept in memory for payment histories
+    public static final int CUSTOMER_NAME_CACHE_SIZE = Integer.getInteger("db.customerNameCacheSize", 10_000);
+
+    // wanted false positive rate of the registered email bloom filter
+    public static final double EMAIL_INDEX_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    // payment rows of transfers are written after the commit by a background writer instead of inside
+    // the transfer, rows still queued when the process dies are lost
+    public static final boolean ASYNC_PAYMENT_WRITES = Boolean.getBoolean("db.asyncPaymentWrites");
+    public static final int PAYMENT_WRITER_QUEUE_SIZE = Integer.getInteger("db.paymentWriter.queueSize", 10_000);
+    public static final int PAYMENT_WRITER_BATCH_SIZE = Integer.getInteger("db.paymentWriter.batchSize", 500);
+    public static final long PAYMENT_WRITER_FLUSH_INTERVAL_MS = Long.getLong("db.paymentWriter.flushIntervalMs", 50);
+    // attempts of a batch failing with a connection or transaction rollback error, other errors are not retried
+    public static final int PAYMENT_WRITER_MAX_ATTEMPTS = Integer.getInteger("db.paymentWriter.maxAttempts", 5);
+    // rows that could not be stored are appended here with their error, to be inserted by an operator
+    public static final String PAYMENT_WRITER_DEAD_LETTER_FILE =
+            System.getProperty("db.paymentWriter.deadLetterFile", "payments-dead-letter.csv");
+    // time shutdown waits for queued rows, rows still queued afterwards go to the dead letter file
+    public static final long PAYMENT_WRITER_SHUTDOWN_TIMEOUT_MS = Long.getLong("db.paymentWriter.shutdownTimeoutMs", 30_000);
+
+    // payments per transaction of a batch transfer, bounds how long the receivers' rows stay locked
+    public static final int TRANSFER_BATCH_CHUNK_SIZE = Integer.getInteger("db.transferBatchChunkSize", 1_000);
+
+    // rows updated per transaction by data migrations
+    public static final int MIGRATION_CHUNK_SIZE = Integer.getInteger("db.migrationChunkSize", 5_000);
+    // parallel chunks of migrations that can split their work, the runner holds one connection already
+    public static final int MIGRATION_THREADS = Integer.getInteger("db.migrationThreads", Math.max(1, POOL_MAX_SIZE - 1));
 }
@@ -0,0 +1,275 @@
+package com.sammdev.db.connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sammdev.db.config.DbConfig.DB_PASSWORD;
+import static com.sammdev.db.config.DbConfig.DB_URL;
+import static com.sammdev.db.config.DbConfig.DB_USER;
+import static com.sammdev.db.config.DbConfig.POOL_ACQUIRE_TIMEOUT_MS;
+import static com.sammdev.db.config.DbConfig.POOL_MAX_SIZE;
+import static com.sammdev.db.config.DbConfig.POOL_VALIDATION_INTERVAL_MS;
+import static com.sammdev.db.config.DbConfig.POOL_VALIDATION_TIMEOUT_S;
+
+/**
+ * Bounded pool of database connections shared by all DAOs.
+ * Connections are borrowed per operation and given back by closing them.
+ */
+public class ConnectionProvider {
+
+    private static final ConnectionProvider instance = new ConnectionProvider();
+
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits = new Semaphore(POOL_MAX_SIZE, true);
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private volatile boolean shutdown;
+
+    private ConnectionProvider() {
+        // hide constructor, singleton pattern
+    }
+
+    public static ConnectionProvider getInstance() {
+        return instance;
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if no idle connection is available.
+     * Closing the returned connection gives it back to the pool.
+     *
+     * @return                  connection owned by the caller until closed
+     * @throws SQLException     if the pool is exhausted for longer than the acquire timeout,
+     *                          or a new connection could not be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(POOL_ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + POOL_ACQUIRE_TIMEOUT_MS + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD));
+                created.incrementAndGet();
+            }
+            active.incrementAndGet();
+            acquired.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return current state of the pool
+     */
+    public PoolMetrics getMetrics() {
+        long count = acquired.get();
+        return new PoolMetrics(
+                POOL_MAX_SIZE,
+                active.get(),
+                idle.size(),
+                count,
+                timeouts.get(),
+                created.get(),
+                discarded.get(),
+                count == 0 ? 0 : totalWaitNanos.get() / count,
+                maxWaitNanos.get()
+        );
+    }
+
+    /**
+     * Closes all idle connections and refuses further borrowing.
+     * Connections still in use are closed when they are returned.
+     */
+    public void shutdown() {
+        shutdown = true;
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    private PooledConnection takeValidIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (pooled.isUsable()) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+        return null;
+    }
+
+    private void release(PooledConnection pooled) {
+        try {
+            if (shutdown || pooled.broken || !pooled.reset()) {
+                discard(pooled);
+            } else {
+                pooled.lastReturned = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            active.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        discarded.incrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            System.err.println(e);
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Physical connection kept by the pool between leases
+     */
+    private class PooledConnection {
+        private final Connection physical;
+        private long lastReturned = System.currentTimeMillis();
+        private boolean broken;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        /**
+         * Connections idle for longer than the validation interval are pinged before reuse
+         */
+        private boolean isUsable() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (System.currentTimeMillis() - lastReturned < POOL_VALIDATION_INTERVAL_MS) {
+                    return true;
+                }
+                return physical.isValid(POOL_VALIDATION_TIMEOUT_S);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Puts connection back into autocommit mode, rolling back anything the borrower left open
+         */
+        private boolean reset() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                return true;
+            } catch (SQLException e) {
+                System.err.println(e);
+                return false;
+            }
+        }
+
+        private Connection lease() {
+            broken = false;
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LeaseHandler(this)
+            );
+        }
+    }
+
+    /**
+     * Forwards calls to the physical connection until the borrower closes it
+     */
+    private class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean returned;
+
+        private LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.physical;
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && isConnectionError((SQLException) cause)) {
+                    pooled.broken = true;
+                }
+                throw cause;
+            }
+        }
+
+        /**
+         * SQL state class 08 means the connection itself failed and must not be reused
+         */
+        private boolean isConnectionError(SQLException e) {
+            String state = e.getSQLState();
+            return state != null && state.startsWith("08");
+        }
+    }
+}
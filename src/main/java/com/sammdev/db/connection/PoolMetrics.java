@@ -0,0 +1,73 @@
+package com.sammdev.db.connection;
+
+/**
+ * Snapshot of the connection pool state
+ */
+public class PoolMetrics {
+    private final int maxSize, active, idle;
+    private final long acquired, timeouts, created, discarded, averageWaitNanos, maxWaitNanos;
+
+    public PoolMetrics(int maxSize, int active, int idle, long acquired, long timeouts, long created,
+                       long discarded, long averageWaitNanos, long maxWaitNanos) {
+        this.maxSize = maxSize;
+        this.active = active;
+        this.idle = idle;
+        this.acquired = acquired;
+        this.timeouts = timeouts;
+        this.created = created;
+        this.discarded = discarded;
+        this.averageWaitNanos = averageWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public long getAcquired() {
+        return acquired;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getDiscarded() {
+        return discarded;
+    }
+
+    public long getAverageWaitNanos() {
+        return averageWaitNanos;
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolMetrics{" +
+                "maxSize=" + maxSize +
+                ", active=" + active +
+                ", idle=" + idle +
+                ", acquired=" + acquired +
+                ", timeouts=" + timeouts +
+                ", created=" + created +
+                ", discarded=" + discarded +
+                ", averageWaitMs=" + averageWaitNanos / 1_000_000.0 +
+                ", maxWaitMs=" + maxWaitNanos / 1_000_000.0 +
+                '}';
+    }
+}
@@ -1,32 +1,55 @@
 package com.sammdev.db.dao;
 
+import com.sammdev.db.cache.BalanceCache;
+import com.sammdev.db.cache.CacheStats;
+import com.sammdev.db.connection.ConnectionProvider;
+import com.sammdev.db.model.Balance;
+import com.sammdev.db.statement.NamedStatement;
+import com.sammdev.db.statement.StatementRegistry;
 import com.sammdev.exception.FailedToCreateRecordException;
 import com.sammdev.exception.FailedToLoadResultException;
 import com.sammdev.exception.FailedToUpdateRecordException;
 import com.sammdev.exception.RecordNotFoundException;
+import com.sammdev.metrics.MethodTimer;
+import com.sammdev.metrics.Metrics;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.function.Consumer;
 
-import static com.sammdev.db.config.DbConfig.DB_PASSWORD;
-import static com.sammdev.db.config.DbConfig.DB_URL;
-import static com.sammdev.db.config.DbConfig.DB_USER;
+import static com.sammdev.db.config.DbConfig.STREAMING_FETCH_SIZE;
 
 public class BalanceDao {
 
     private static final BalanceDao instance = new BalanceDao();
-    private Connection connection;
+
+    private static final StatementRegistry statements = StatementRegistry.getInstance();
+    private static final NamedStatement INSERT = statements.declare("balance.insert",
+            "INSERT INTO balance (id, balance, version) VALUES (?,?,0)");
+    private static final NamedStatement UPDATE_IF_VERSION = statements.declare("balance.updateIfVersion",
+            "UPDATE balance SET balance=?, version=version+1 where id=? and version=?");
+    private static final NamedStatement FIND = statements.declare("balance.find",
+            "SELECT balance, version FROM balance WHERE id=?");
+    private static final NamedStatement ALL = statements.declare("balance.all",
+            "SELECT id, balance, version FROM balance");
+    private static final NamedStatement OVERWRITE = statements.declare("balance.overwrite",
+            "UPDATE balance SET balance=?, version=version+1 WHERE id=?");
+
+    private static final Metrics metrics = Metrics.getInstance();
+    private static final MethodTimer CREATE_TIMER = metrics.timer("balanceDao.createBalance");
+    private static final MethodTimer UPDATE_TIMER = metrics.timer("balanceDao.updateBalance");
+    private static final MethodTimer GET_TIMER = metrics.timer("balanceDao.getBalance");
+    private static final MethodTimer LOAD_TIMER = metrics.timer("balanceDao.loadBalance");
+    private static final MethodTimer FOR_EACH_TIMER = metrics.timer("balanceDao.forEachBalance");
+    private static final MethodTimer WRITE_TIMER = metrics.timer("balanceDao.writeBalances");
+
+    private final ConnectionProvider connectionProvider = ConnectionProvider.getInstance();
+    private final BalanceCache balanceCache = BalanceCache.getInstance();
 
     private BalanceDao() {
-        // hide constructor, singleton patter
-        try {
-            connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-        } catch (Exception e) {
-            System.err.println(e);
-        }
+        // hide constructor, singleton pattern
     }
 
     public static BalanceDao getInstance() {
@@ -37,52 +60,92 @@ public class BalanceDao {
      * Creates a record in balance table
      *
      * @param id     id of the row
-     * @param amount initial balance
+     * @param amount initial balance in minor units
      * @throws FailedToCreateRecordException if creation fails
      */
-    public void createBalance(int id, double amount) throws FailedToCreateRecordException {
-        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO balance VALUES (?,?)")) {
-            statement.setInt(1, id);
-            statement.setDouble(2, amount);
-            statement.execute();
-        } catch (SQLException e) {
-            System.err.println(e);
-            throw new FailedToCreateRecordException("Failed to create balance record!");
-        }
+    public void createBalance(int id, long amount) throws FailedToCreateRecordException {
+        CREATE_TIMER.run(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = INSERT.prepare(connection)) {
+                statement.setInt(1, id);
+                statement.setLong(2, amount);
+                statement.execute();
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToCreateRecordException("Failed to create balance record!");
+            }
+            balanceCache.put(new Balance(id, amount, 0));
+        });
     }
 
     /**
-     * Updates a record in a balance table
+     * Updates a record in a balance table, only if nobody changed it since it was read
      *
-     * @param id     id of the record
-     * @param amount new amount
+     * @param current   balance the new amount was computed from
+     * @param amount    new amount in minor units
+     * @return          false if the row has a newer version than current, nothing is written then
      * @throws FailedToUpdateRecordException
      */
-    public void updateBalance(int id, double amount) throws FailedToUpdateRecordException {
-        try (PreparedStatement statement = connection.prepareStatement("UPDATE balance SET balance=? where id=?")) {
-            statement.setDouble(1, amount);
-            statement.setInt(2, id);
-            statement.execute();
-        } catch (SQLException e) {
-            System.err.println(e);
-            throw new FailedToUpdateRecordException("Failed to update balance record!");
-        }
+    public boolean updateBalance(Balance current, long amount) throws FailedToUpdateRecordException {
+        return UPDATE_TIMER.time(() -> {
+            int updated;
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = UPDATE_IF_VERSION.prepare(connection)) {
+                statement.setLong(1, amount);
+                statement.setInt(2, current.getId());
+                statement.setLong(3, current.getVersion());
+                updated = statement.executeUpdate();
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToUpdateRecordException("Failed to update balance record!");
+            }
+
+            if (updated == 0) {
+                balanceCache.invalidate(current.getId());
+                return false;
+            }
+            balanceCache.put(new Balance(current.getId(), amount, current.getVersion() + 1));
+            return true;
+        });
+    }
+
+    /**
+     * Gets a balance, from the cache if this process has seen the row already
+     *
+     * @param id id of the record
+     * @return balance with its row version
+     * @throws RecordNotFoundException     if the record does not exist
+     * @throws FailedToLoadResultException if the exception occurred during reading db
+     */
+    public Balance getBalance(int id) throws RecordNotFoundException {
+        return GET_TIMER.time(() -> {
+            Balance cached = balanceCache.get(id);
+            return cached != null ? cached : readBalance(id);
+        });
     }
 
     /**
-     * Gets a balance in the balance table
+     * Reads a balance from the database, bypassing the cache, e.g. before rejecting an operation
+     * based on a cached amount another process may have changed since
      *
      * @param id id of the record
-     * @return balance amount
+     * @return balance with its row version
      * @throws RecordNotFoundException     if the record does not exist
      * @throws FailedToLoadResultException if the exception occurred during reading db
      */
-    public Double getBalance(int id) throws RecordNotFoundException {
-        try (PreparedStatement statement = connection.prepareStatement("SELECT balance FROM balance WHERE id=?")) {
+    public Balance loadBalance(int id) throws RecordNotFoundException {
+        return LOAD_TIMER.time(() -> readBalance(id));
+    }
+
+    private Balance readBalance(int id) throws RecordNotFoundException {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement statement = FIND.prepare(connection)) {
             statement.setInt(1, id);
             ResultSet resultSet = statement.executeQuery();
             if (resultSet.next()) {
-                return resultSet.getDouble(1);
+                Balance balance = new Balance(id, resultSet.getLong(1), resultSet.getLong(2));
+                balanceCache.put(balance);
+                return balance;
             } else {
                 throw new RecordNotFoundException("Balance record with id " + id + " does not exist!");
             }
@@ -90,7 +153,66 @@ public class BalanceDao {
             System.err.println(e);
             throw new FailedToLoadResultException("Failed to read balance record!");
         }
+    }
 
+    /**
+     * Streams all balances without holding them in memory
+     *
+     * @param consumer  receives every balance
+     */
+    public void forEachBalance(Consumer<Balance> consumer) {
+        FOR_EACH_TIMER.run(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = ALL.prepare(connection)) {
+                statement.setFetchSize(STREAMING_FETCH_SIZE);
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    consumer.accept(new Balance(resultSet.getInt(1), resultSet.getLong(2), resultSet.getLong(3)));
+                }
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToLoadResultException("Failed to load balances!");
+            }
+        });
+    }
+
+    /**
+     * Overwrites many balances in one transaction, without version checks
+     *
+     * @param ids       ids of the records
+     * @param amounts   new amounts in minor units, same order as ids
+     * @param count     number of used entries of both arrays
+     * @throws SQLException if writing fails, nothing is written then
+     */
+    public void writeBalances(int[] ids, long[] amounts, int count) throws SQLException {
+        WRITE_TIMER.run(() -> {
+            try (Connection connection = connectionProvider.getConnection()) {
+                connection.setAutoCommit(false);
+                try (PreparedStatement statement = OVERWRITE.prepare(connection)) {
+                    for (int i = 0; i < count; i++) {
+                        statement.setLong(1, amounts[i]);
+                        statement.setInt(2, ids[i]);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    connection.commit();
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                // cached versions are behind now
+                balanceCache.remove(ids[i]);
+            }
+        });
+    }
+
+    /**
+     * @return hit, miss and eviction counters of the balance cache
+     */
+    public CacheStats getCacheStats() {
+        return balanceCache.getStats();
     }
 
 }
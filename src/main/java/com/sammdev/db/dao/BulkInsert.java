@@ -0,0 +1,114 @@
+package com.sammdev.db.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Writes rows with multi-row INSERT statements sent as JDBC batches.
+ * Runs on the caller's connection, committing is up to the caller.
+ */
+public class BulkInsert implements AutoCloseable {
+    private final Connection connection;
+    private final String insertPrefix;
+    private final String rowPlaceholder;
+    private final int columnCount;
+    private final int rowsPerStatement;
+    private final int statementsPerBatch;
+
+    private final PreparedStatement fullStatement;
+    private final Object[] pendingValues;
+    private int pendingRows;
+    private int batchedStatements;
+    private long rowsWritten;
+
+    /**
+     * @param connection            connection to write with
+     * @param table                 target table
+     * @param columns               inserted columns, values are added in this order
+     * @param rowsPerStatement      rows in one INSERT statement
+     * @param statementsPerBatch    statements sent to the server in one batch
+     * @throws SQLException         if the statement can not be prepared
+     */
+    public BulkInsert(Connection connection, String table, String[] columns, int rowsPerStatement,
+                      int statementsPerBatch) throws SQLException {
+        this.connection = connection;
+        this.columnCount = columns.length;
+        this.rowsPerStatement = rowsPerStatement;
+        this.statementsPerBatch = statementsPerBatch;
+        this.insertPrefix = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ";
+
+        StringBuilder placeholder = new StringBuilder("(");
+        for (int i = 0; i < columnCount; i++) {
+            placeholder.append(i == 0 ? "?" : ",?");
+        }
+        this.rowPlaceholder = placeholder.append(')').toString();
+
+        this.fullStatement = connection.prepareStatement(sql(rowsPerStatement));
+        this.pendingValues = new Object[rowsPerStatement * columnCount];
+    }
+
+    /**
+     * @param values    one value per column
+     * @throws SQLException if a batch fails
+     */
+    public void addRow(Object... values) throws SQLException {
+        System.arraycopy(values, 0, pendingValues, pendingRows * columnCount, columnCount);
+        if (++pendingRows == rowsPerStatement) {
+            bind(fullStatement, rowsPerStatement);
+            fullStatement.addBatch();
+            pendingRows = 0;
+            if (++batchedStatements == statementsPerBatch) {
+                fullStatement.executeBatch();
+                batchedStatements = 0;
+            }
+        }
+        rowsWritten++;
+    }
+
+    /**
+     * Sends every row added so far
+     *
+     * @throws SQLException if writing fails
+     */
+    public void flush() throws SQLException {
+        if (batchedStatements > 0) {
+            fullStatement.executeBatch();
+            batchedStatements = 0;
+        }
+        if (pendingRows > 0) {
+            try (PreparedStatement remainder = connection.prepareStatement(sql(pendingRows))) {
+                bind(remainder, pendingRows);
+                remainder.executeUpdate();
+            }
+            pendingRows = 0;
+        }
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        fullStatement.close();
+    }
+
+    private void bind(PreparedStatement statement, int rows) throws SQLException {
+        for (int i = 0; i < rows * columnCount; i++) {
+            statement.setObject(i + 1, pendingValues[i]);
+        }
+    }
+
+    private String sql(int rows) {
+        StringBuilder sql = new StringBuilder(insertPrefix.length() + rows * (rowPlaceholder.length() + 1));
+        sql.append(insertPrefix);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(rowPlaceholder);
+        }
+        return sql.toString();
+    }
+}
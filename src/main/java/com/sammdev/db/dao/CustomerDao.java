@@ -1,34 +1,93 @@
 package com.sammdev.db.dao;
 
+import com.sammdev.db.cache.CacheStats;
+import com.sammdev.db.cache.CustomerNameCache;
+import com.sammdev.db.cache.EmailIndex;
+import com.sammdev.db.connection.ConnectionProvider;
 import com.sammdev.db.model.Customer;
+import com.sammdev.db.model.CustomerAuth;
+import com.sammdev.db.statement.NamedStatement;
+import com.sammdev.db.statement.StatementRegistry;
 import com.sammdev.exception.FailedToCreateRecordException;
 import com.sammdev.exception.FailedToLoadResultException;
 import com.sammdev.exception.FailedToUpdateRecordException;
-import com.sammdev.exception.RecordNotFoundException;
+import com.sammdev.metrics.MethodTimer;
+import com.sammdev.metrics.Metrics;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
-import static com.sammdev.db.config.DbConfig.DB_PASSWORD;
-import static com.sammdev.db.config.DbConfig.DB_URL;
-import static com.sammdev.db.config.DbConfig.DB_USER;
+import static com.sammdev.db.config.DbConfig.STREAMING_FETCH_SIZE;
 
 public class CustomerDao {
 
     private static final CustomerDao instance = new CustomerDao();
 
-    private Connection connection;
+    // values per IN list, keeps statements well below the server's packet and placeholder limits,
+    // a power of two so full chunks need no padding
+    private static final int LOOKUP_CHUNK = 1024;
+
+    // in the order of the Customer constructor
+    private static final String CUSTOMER_COLUMNS = "id, first_name, last_name, address, email, password";
+
+    private static final StatementRegistry statements = StatementRegistry.getInstance();
+    private static final NamedStatement INSERT = statements.declare("customers.insert",
+            "INSERT INTO customers VALUES(?,?,?,?,?,?)");
+    private static final NamedStatement EMAIL_EXISTS = statements.declare("customers.emailExists",
+            "SELECT 1 FROM customers WHERE email = ? LIMIT 1");
+    private static final NamedStatement EXISTING_EMAILS = statements.declare("customers.existingEmails",
+            "SELECT email FROM customers WHERE email IN (%s)");
+    private static final NamedStatement DISPLAY_NAMES = statements.declare("customers.displayNames",
+            "SELECT id, first_name, last_name FROM customers WHERE id IN (%s)");
+    private static final NamedStatement COUNT = statements.declare("customers.count",
+            "SELECT COUNT(*) FROM customers");
+    private static final NamedStatement ALL_EMAILS = statements.declare("customers.allEmails",
+            "SELECT email FROM customers");
+    private static final NamedStatement FIND_BY_EMAIL = statements.declare("customers.findByEmail",
+            "SELECT " + CUSTOMER_COLUMNS + " FROM customers WHERE email = ?");
+    private static final NamedStatement FIND_BY_ID = statements.declare("customers.findById",
+            "SELECT " + CUSTOMER_COLUMNS + " FROM customers WHERE id = ?");
+    private static final NamedStatement ID_EXISTS = statements.declare("customers.idExists",
+            "SELECT id FROM customers WHERE id = ?");
+    private static final NamedStatement FIND_AUTH = statements.declare("customers.findAuth",
+            "SELECT id, password FROM customers WHERE email = ?");
+    private static final NamedStatement UPDATE = statements.declare("customers.update",
+            "UPDATE customers SET first_name=?, last_name=?, email=?, address=?, password=? WHERE id = ?");
+    private static final NamedStatement UPDATE_PASSWORD = statements.declare("customers.updatePassword",
+            "UPDATE customers SET password = ? WHERE id = ?");
+
+    private static final Metrics metrics = Metrics.getInstance();
+    private static final MethodTimer CREATE_TIMER = metrics.timer("customerDao.createCustomer");
+    private static final MethodTimer EMAIL_EXISTS_TIMER = metrics.timer("customerDao.emailExists");
+    private static final MethodTimer EXISTING_EMAILS_TIMER = metrics.timer("customerDao.findExistingEmails");
+    private static final MethodTimer DISPLAY_NAMES_TIMER = metrics.timer("customerDao.getDisplayNames");
+    private static final MethodTimer COUNT_TIMER = metrics.timer("customerDao.countCustomers");
+    private static final MethodTimer FOR_EACH_EMAIL_TIMER = metrics.timer("customerDao.forEachEmail");
+    private static final MethodTimer FIND_BY_EMAIL_TIMER = metrics.timer("customerDao.findByEmail");
+    private static final MethodTimer FIND_BY_ID_TIMER = metrics.timer("customerDao.findById");
+    private static final MethodTimer EXISTS_TIMER = metrics.timer("customerDao.customerExists");
+    private static final MethodTimer DISPLAY_NAME_TIMER = metrics.timer("customerDao.findDisplayName");
+    private static final MethodTimer FIND_AUTH_TIMER = metrics.timer("customerDao.findAuth");
+    private static final MethodTimer UPDATE_TIMER = metrics.timer("customerDao.updateCustomer");
+    private static final MethodTimer UPDATE_PASSWORD_TIMER = metrics.timer("customerDao.updatePassword");
+
+    private final ConnectionProvider connectionProvider = ConnectionProvider.getInstance();
+    private final EmailIndex emailIndex = EmailIndex.getInstance();
+    private final CustomerNameCache nameCache = CustomerNameCache.getInstance();
 
     private CustomerDao() {
-        try {
-            connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-        } catch (Exception e) {
-            System.err.println(e);
-        }
     }
 
     public static CustomerDao getInstance() {
@@ -37,44 +96,164 @@ public class CustomerDao {
 
 
     /**
-     * Gets id of last customer registered in database
+     * Creates new entry of the customer
      *
-     * @return  id of last registered customer
+     * @param newCustomer customer representation
+     * @throws FailedToCreateRecordException if an error occurs
      */
-    public int getLastId() {
-        int returnValue = 0;
-        try {
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery("select max(id) from customers");
-            resultSet.next();
-            returnValue = resultSet.getInt(1);
-            statement.close();
-        } catch (Exception e) {
-            System.err.println(e);
-        }
-        return returnValue;
+    public void createCustomer(Customer newCustomer) throws FailedToCreateRecordException {
+        CREATE_TIMER.run(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = INSERT.prepare(connection)) {
+                statement.setInt(1, newCustomer.getId());
+                statement.setString(2, newCustomer.getFirstName());
+                statement.setString(3, newCustomer.getLastName());
+                statement.setString(4, newCustomer.getAddress());
+                statement.setString(5, newCustomer.getEmail());
+                statement.setString(6, newCustomer.getPassword());
+                statement.execute();
+            } catch (SQLException e) {
+                System.out.println(e);
+                throw new FailedToCreateRecordException("Failed to create customer!");
+            }
+            emailIndex.add(newCustomer.getEmail());
+        });
     }
 
+    /**
+     * Checks whether an email is registered, without loading the customer
+     *
+     * @param email     user email
+     * @return          true if a customer with this email exists
+     */
+    public boolean emailExists(String email) {
+        return EMAIL_EXISTS_TIMER.time(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = EMAIL_EXISTS.prepare(connection)) {
+                statement.setString(1, email);
+                return statement.executeQuery().next();
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToLoadResultException("Failed to check email!");
+            }
+        });
+    }
 
     /**
-     * Creates new entry of the customer
+     * Checks many emails with a few IN queries instead of one query per email
      *
-     * @param newCustomer customer representation
-     * @throws FailedToCreateRecordException if an error occurs
+     * @param emails    emails to check
+     * @return          those of the given emails that are already registered
      */
-    public void createCustomer(Customer newCustomer) throws FailedToCreateRecordException {
-        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO customers VALUES(?,?,?,?,?,?)")) {
-            statement.setInt(1, newCustomer.getId());
-            statement.setString(2, newCustomer.getFirstName());
-            statement.setString(3, newCustomer.getLastName());
-            statement.setString(4, newCustomer.getAddress());
-            statement.setString(5, newCustomer.getEmail());
-            statement.setString(6, newCustomer.getPassword());
-            statement.execute();
-        } catch (SQLException e) {
-            System.out.println(e);
-            throw new FailedToCreateRecordException("Failed to create customer!");
-        }
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        return EXISTING_EMAILS_TIMER.time(() -> {
+            Set<String> existing = new HashSet<>();
+            List<String> pending = new ArrayList<>(emails);
+            try (Connection connection = connectionProvider.getConnection()) {
+                for (int from = 0; from < pending.size(); from += LOOKUP_CHUNK) {
+                    List<String> chunk = pending.subList(from, Math.min(pending.size(), from + LOOKUP_CHUNK));
+                    try (PreparedStatement statement = EXISTING_EMAILS.prepare(connection, chunk)) {
+                        ResultSet resultSet = statement.executeQuery();
+                        while (resultSet.next()) {
+                            existing.add(resultSet.getString(1));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToLoadResultException("Failed to check emails!");
+            }
+            return existing;
+        });
+    }
+
+    /**
+     * Gets display names ("first last") from the name cache, missing ones are loaded with a few IN queries
+     *
+     * @param ids   customer ids
+     * @return      display names by id, ids of unknown customers are left out
+     */
+    public Map<Integer, String> getDisplayNames(Collection<Integer> ids) {
+        return DISPLAY_NAMES_TIMER.time(() -> {
+            Map<Integer, String> names = new HashMap<>();
+            List<Integer> missing = new ArrayList<>();
+            for (Integer id : new HashSet<>(ids)) {
+                String name = nameCache.get(id);
+                if (name == null) {
+                    missing.add(id);
+                } else {
+                    names.put(id, name);
+                }
+            }
+            if (missing.isEmpty()) {
+                return names;
+            }
+
+            long cacheVersion = nameCache.getVersion();
+            Map<Integer, String> loaded = new HashMap<>();
+            try (Connection connection = connectionProvider.getConnection()) {
+                for (int from = 0; from < missing.size(); from += LOOKUP_CHUNK) {
+                    List<Integer> chunk = missing.subList(from, Math.min(missing.size(), from + LOOKUP_CHUNK));
+                    try (PreparedStatement statement = DISPLAY_NAMES.prepare(connection, chunk)) {
+                        ResultSet resultSet = statement.executeQuery();
+                        while (resultSet.next()) {
+                            loaded.put(resultSet.getInt(1), resultSet.getString(2) + ' ' + resultSet.getString(3));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToLoadResultException("Failed to load customer names!");
+            }
+            nameCache.putAll(loaded, cacheVersion);
+            names.putAll(loaded);
+            return names;
+        });
+    }
+
+    /**
+     * @return hit, miss and eviction counters of the customer name cache
+     */
+    public CacheStats getNameCacheStats() {
+        return nameCache.getStats();
+    }
+
+    /**
+     * @return number of registered customers
+     */
+    public int countCustomers() {
+        return COUNT_TIMER.time(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = COUNT.prepare(connection)) {
+                ResultSet resultSet = statement.executeQuery();
+                resultSet.next();
+                return resultSet.getInt(1);
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToLoadResultException("Failed to count customers!");
+            }
+        });
+    }
+
+    /**
+     * Streams all registered emails without holding them in memory
+     *
+     * @param consumer  receives every email
+     */
+    public void forEachEmail(Consumer<String> consumer) {
+        FOR_EACH_EMAIL_TIMER.run(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = ALL_EMAILS.prepare(connection)) {
+                statement.setFetchSize(STREAMING_FETCH_SIZE);
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    consumer.accept(resultSet.getString(1));
+                }
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToLoadResultException("Failed to load emails!");
+            }
+        });
     }
 
 
@@ -82,60 +261,106 @@ public class CustomerDao {
      * Gets user by his email
      *
      * @param email user email
-     * @return Customer object
-     * @throws RecordNotFoundException if a user was not found
+     * @return      the customer, empty if there is none with this email
      */
-    public Customer findCustomer(String email) throws RecordNotFoundException {
-
-        try (PreparedStatement statement = connection.prepareStatement("SELECT * from customers where email = ?")) {
-            statement.setString(1, email);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                return new Customer(
-                        resultSet.getInt(1),
-                        resultSet.getString(2),
-                        resultSet.getString(3),
-                        resultSet.getString(4),
-                        resultSet.getString(5),
-                        resultSet.getString(6)
-                );
-            } else {
-                throw new RecordNotFoundException("Unable to find user with given email!");
+    public Optional<Customer> findByEmail(String email) {
+        return FIND_BY_EMAIL_TIMER.time(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = FIND_BY_EMAIL.prepare(connection)) {
+                statement.setString(1, email);
+                return readCustomer(statement.executeQuery());
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToLoadResultException("Failed to load user!"); //runtime exception
             }
-        } catch (SQLException e) {
-            System.err.println(e);
-            throw new FailedToLoadResultException("Failed to load user!"); //runtime exception
-        }
+        });
     }
 
     /**
      * Gets user by his id
      *
-     * @param id user id
-     * @return Customer object
-     * @throws RecordNotFoundException if a user was not found
+     * @param id    user id
+     * @return      the customer, empty if there is none with this id
      */
-    public Customer findCustomer(int id) throws RecordNotFoundException {
-
-        try (PreparedStatement statement = connection.prepareStatement("SELECT * from customers where id = ?")) {
-            statement.setInt(1, id);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                return new Customer(
-                        resultSet.getInt(1),
-                        resultSet.getString(2),
-                        resultSet.getString(3),
-                        resultSet.getString(4),
-                        resultSet.getString(5),
-                        resultSet.getString(6)
-                );
-            } else {
-                throw new RecordNotFoundException("Unable to find user with given ID!");
+    public Optional<Customer> findById(int id) {
+        return FIND_BY_ID_TIMER.time(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = FIND_BY_ID.prepare(connection)) {
+                statement.setInt(1, id);
+                return readCustomer(statement.executeQuery());
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToLoadResultException("Failed to load user!"); //runtime exception
             }
-        } catch (SQLException e) {
-            System.err.println(e);
-            throw new FailedToLoadResultException("Failed to load user!"); //runtime exception
+        });
+    }
+
+    private Optional<Customer> readCustomer(ResultSet resultSet) throws SQLException {
+        if (!resultSet.next()) {
+            return Optional.empty();
         }
+        return Optional.of(new Customer(
+                resultSet.getInt(1),
+                resultSet.getString(2),
+                resultSet.getString(3),
+                resultSet.getString(4),
+                resultSet.getString(5),
+                resultSet.getString(6)
+        ));
+    }
+
+    /**
+     * Checks whether a customer id is registered, reading only the primary key
+     *
+     * @param id    user id
+     * @return      true if a customer with this id exists
+     */
+    public boolean customerExists(int id) {
+        return EXISTS_TIMER.time(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = ID_EXISTS.prepare(connection)) {
+                statement.setInt(1, id);
+                return statement.executeQuery().next();
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToLoadResultException("Failed to check user!");
+            }
+        });
+    }
+
+    /**
+     * Gets the display name ("first last") of one customer, served from the name cache when possible
+     *
+     * @param id    user id
+     * @return      display name, empty if there is no customer with this id
+     */
+    public Optional<String> findDisplayName(int id) {
+        return DISPLAY_NAME_TIMER.time(() -> {
+            return Optional.ofNullable(getDisplayNames(Collections.singletonList(id)).get(id));
+        });
+    }
+
+    /**
+     * Gets id and password hash of a customer, the rest of the profile is not read
+     *
+     * @param email user email
+     * @return      auth record, empty if there is no customer with this email
+     */
+    public Optional<CustomerAuth> findAuth(String email) {
+        return FIND_AUTH_TIMER.time(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = FIND_AUTH.prepare(connection)) {
+                statement.setString(1, email);
+                ResultSet resultSet = statement.executeQuery();
+                if (!resultSet.next()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new CustomerAuth(resultSet.getInt(1), resultSet.getString(2)));
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToLoadResultException("Failed to load user!");
+            }
+        });
     }
 
     /**
@@ -144,19 +369,43 @@ public class CustomerDao {
      * @param customer  customer with new actual info
      */
     public void updateCustomer(Customer customer) {
-        try (PreparedStatement statement =
-                     connection.prepareStatement("UPDATE customers SET first_name=?, last_name=?, email=?, address=?, password=? WHERE id = ?")) {
-            statement.setString(1, customer.getFirstName());
-            statement.setString(2, customer.getLastName());
-            statement.setString(3, customer.getEmail());
-            statement.setString(4, customer.getAddress());
-            statement.setString(5, customer.getPassword());
-            statement.setInt(6, customer.getId());
-            statement.executeUpdate();
-        } catch (SQLException e) {
-            System.err.println(e);
-            throw new FailedToUpdateRecordException("Failed to update user!");
-        }
+        UPDATE_TIMER.run(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = UPDATE.prepare(connection)) {
+                statement.setString(1, customer.getFirstName());
+                statement.setString(2, customer.getLastName());
+                statement.setString(3, customer.getEmail());
+                statement.setString(4, customer.getAddress());
+                statement.setString(5, customer.getPassword());
+                statement.setInt(6, customer.getId());
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToUpdateRecordException("Failed to update user!");
+            }
+            emailIndex.add(customer.getEmail());
+            nameCache.invalidate(customer.getId());
+        });
+    }
+
+    /**
+     * Replaces only the password hash of a customer
+     *
+     * @param id        user id
+     * @param password  new password hash
+     */
+    public void updatePassword(int id, String password) {
+        UPDATE_PASSWORD_TIMER.run(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = UPDATE_PASSWORD.prepare(connection)) {
+                statement.setString(1, password);
+                statement.setInt(2, id);
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToUpdateRecordException("Failed to update password!");
+            }
+        });
     }
 
 }
@@ -0,0 +1,143 @@
+package com.sammdev.db.dao;
+
+import com.sammdev.db.connection.ConnectionProvider;
+import com.sammdev.db.statement.NamedStatement;
+import com.sammdev.db.statement.StatementRegistry;
+import com.sammdev.exception.FailedToLoadResultException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.sammdev.db.config.DbConfig.ID_BLOCK_SIZE;
+
+/**
+ * Hands out primary keys from blocks reserved in the id_sequences table (hi/lo).
+ * A block is reserved under a row lock, so several application instances never get the same ids.
+ * Ids inside a block are handed out from memory, unused ids of a block are lost on restart.
+ */
+public class IdAllocator {
+
+    private static final StatementRegistry statements = StatementRegistry.getInstance();
+    private static final NamedStatement LOCK_NEXT_ID = statements.declare("idSequences.lock",
+            "SELECT next_id FROM id_sequences WHERE name=? FOR UPDATE");
+    private static final NamedStatement UPDATE_NEXT_ID = statements.declare("idSequences.update",
+            "UPDATE id_sequences SET next_id=? WHERE name=?");
+
+    // declared after the statements, the constructor declares the seed statement
+    private static final IdAllocator customers = new IdAllocator("customers", "customers", "id");
+    private static final IdAllocator payments = new IdAllocator("payments", "payments", "payment_id");
+    private static final IdAllocator standingOrders = new IdAllocator("standingOrders", "standing_orders", "id");
+
+    private final ConnectionProvider connectionProvider = ConnectionProvider.getInstance();
+    private final String sequenceName;
+    private final NamedStatement seed;
+
+    private volatile Block block = new Block(0, 0);
+
+    private IdAllocator(String sequenceName, String table, String idColumn) {
+        this.sequenceName = sequenceName;
+        this.seed = statements.declare("idSequences.seed." + sequenceName,
+                "INSERT IGNORE INTO id_sequences (name, next_id) " +
+                "SELECT ?, COALESCE(MAX(" + idColumn + "), 0) + 1 FROM " + table);
+    }
+
+    public static IdAllocator customers() {
+        return customers;
+    }
+
+    public static IdAllocator payments() {
+        return payments;
+    }
+
+    public static IdAllocator standingOrders() {
+        return standingOrders;
+    }
+
+    /**
+     * @return unused id, reserving a new block from the database when the current one runs out
+     * @throws FailedToLoadResultException if a new block could not be reserved
+     */
+    public int nextId() {
+        while (true) {
+            Block current = block;
+            int id = current.next.getAndIncrement();
+            if (id < current.limit) {
+                return id;
+            }
+            synchronized (this) {
+                if (block == current) {
+                    block = reserve(ID_BLOCK_SIZE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reserves a contiguous range of ids for bulk inserts, bypassing the in-memory block
+     *
+     * @param count     number of ids
+     * @return          first id of the range, the range ends at first id + count (exclusive)
+     * @throws FailedToLoadResultException if the range could not be reserved
+     */
+    public int reserveRange(int count) {
+        return reserve(count).next.get();
+    }
+
+    /**
+     * Moves the sequence forward by blockSize and returns the reserved range
+     */
+    private Block reserve(int blockSize) {
+        try (Connection connection = connectionProvider.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                Integer start = lockNextId(connection);
+                if (start == null) {
+                    // first use of the sequence, continue after the ids already in the table
+                    try (PreparedStatement statement = seed.prepare(connection)) {
+                        statement.setString(1, sequenceName);
+                        statement.executeUpdate();
+                    }
+                    start = lockNextId(connection);
+                }
+
+                try (PreparedStatement statement = UPDATE_NEXT_ID.prepare(connection)) {
+                    statement.setInt(1, start + blockSize);
+                    statement.setString(2, sequenceName);
+                    statement.executeUpdate();
+                }
+                connection.commit();
+                return new Block(start, start + blockSize);
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println(e);
+            throw new FailedToLoadResultException("Failed to reserve ids for " + sequenceName + "!");
+        }
+    }
+
+    private Integer lockNextId(Connection connection) throws SQLException {
+        try (PreparedStatement statement = LOCK_NEXT_ID.prepare(connection)) {
+            statement.setString(1, sequenceName);
+            ResultSet resultSet = statement.executeQuery();
+            return resultSet.next() ? resultSet.getInt(1) : null;
+        }
+    }
+
+    /**
+     * Reserved range of ids, from next (inclusive) to limit (exclusive)
+     */
+    private static class Block {
+        private final AtomicInteger next;
+        private final int limit;
+
+        private Block(int start, int limit) {
+            this.next = new AtomicInteger(start);
+            this.limit = limit;
+        }
+    }
+}
@@ -1,46 +1,85 @@
 package com.sammdev.db.dao;
 
 
+import com.sammdev.db.connection.ConnectionProvider;
 import com.sammdev.db.model.Payment;
+import com.sammdev.db.model.PaymentCursor;
+import com.sammdev.db.model.PaymentPage;
+import com.sammdev.db.statement.NamedStatement;
+import com.sammdev.db.statement.StatementRegistry;
 import com.sammdev.exception.FailedToCreateRecordException;
 import com.sammdev.exception.FailedToLoadResultException;
+import com.sammdev.metrics.MethodTimer;
+import com.sammdev.metrics.Metrics;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
-import static com.sammdev.db.config.DbConfig.DB_PASSWORD;
-import static com.sammdev.db.config.DbConfig.DB_URL;
-import static com.sammdev.db.config.DbConfig.DB_USER;
+import static com.sammdev.db.config.DbConfig.STREAMING_FETCH_SIZE;
 
 public class PaymentDao {
     private static PaymentDao instance = new PaymentDao();
-    private Connection connection;
+    private final ConnectionProvider connectionProvider = ConnectionProvider.getInstance();
+    private final PaymentWriter paymentWriter = PaymentWriter.getInstance();
+    private final CustomerDao customerDao = CustomerDao.getInstance();
+    private final PaymentSummaryDao paymentSummaryDao = PaymentSummaryDao.getInstance();
 
+    // names are resolved through the customer name cache, the query touches the payments table only
     private static final String PAYMENTS_QUERY =
             "select " +
+            "p.payment_id," +
             "p.sender_id," +
-            "concat(customer_sender.first_name, ' ', customer_sender.last_name) as sender_name," +
             "p.reciever_id," +
-            "concat(customer_receiver.first_name, ' ', customer_receiver.last_name) as receiver_name," +
             "p.amount," +
-            "concat(p.date, ' ', p.time) as time " +
-            "from payments p " +
-            "join customers customer_sender on customer_sender.id = p.sender_id " +
-            "join customers customer_receiver on customer_receiver.id = p.reciever_id ";
+            "p.created_at " +
+            "from payments p ";
+
+    // served by the (customer, created_at, payment_id) indexes
+    private static final String AFTER_CURSOR = "and (p.created_at < ? or (p.created_at = ? and p.payment_id < ?)) ";
+    private static final String NEWEST_FIRST = "order by p.created_at desc, p.payment_id desc limit ?";
+    private static final Comparator<Payment> NEWEST_FIRST_ORDER =
+            Comparator.comparing(Payment::getTime).thenComparingInt(Payment::getPaymentId).reversed();
+
+    private static final StatementRegistry statements = StatementRegistry.getInstance();
+    private static final NamedStatement SENT_FIRST_PAGE = statements.declare("payments.sentFirstPage",
+            PAYMENTS_QUERY + "where p.sender_id = ? " + NEWEST_FIRST);
+    private static final NamedStatement SENT_PAGE = statements.declare("payments.sentPage",
+            PAYMENTS_QUERY + "where p.sender_id = ? " + AFTER_CURSOR + NEWEST_FIRST);
+    private static final NamedStatement RECEIVED_FIRST_PAGE = statements.declare("payments.receivedFirstPage",
+            PAYMENTS_QUERY + "where p.reciever_id = ? " + NEWEST_FIRST);
+    private static final NamedStatement RECEIVED_PAGE = statements.declare("payments.receivedPage",
+            PAYMENTS_QUERY + "where p.reciever_id = ? " + AFTER_CURSOR + NEWEST_FIRST);
+    // each branch reads one of the customer indexes, the server sorts the union, the client only streams it
+    private static final NamedStatement ALL_OF_CUSTOMER = statements.declare("payments.allOfCustomer",
+            PAYMENTS_QUERY + "where p.sender_id = ? union all " + PAYMENTS_QUERY + "where p.reciever_id = ? " +
+            "order by created_at, payment_id");
+    private static final NamedStatement ALL = statements.declare("payments.all",
+            PAYMENTS_QUERY + "order by p.payment_id");
+    private static final NamedStatement INSERT = statements.declare("payments.insert",
+            "insert into payments (payment_id, sender_id, reciever_id, amount, created_at) values (?,?,?,?,?)");
+
+    private static final Metrics metrics = Metrics.getInstance();
+    private static final MethodTimer RECEIVED_TIMER = metrics.timer("paymentDao.getReceivedPayments");
+    private static final MethodTimer SENT_TIMER = metrics.timer("paymentDao.getSentPayments");
+    private static final MethodTimer CREATE_TIMER = metrics.timer("paymentDao.createPayment");
+    private static final MethodTimer FOR_EACH_OF_CUSTOMER_TIMER = metrics.timer("paymentDao.forEachPaymentOf");
+    private static final MethodTimer FOR_EACH_TIMER = metrics.timer("paymentDao.forEachPayment");
 
 
     private PaymentDao() {
-        try {
-            connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-        } catch (Exception e) {
-            System.err.println(e);
-        }
     }
 
     public static PaymentDao getInstance() {
@@ -49,50 +88,137 @@ public class PaymentDao {
 
 
     /**
-     * Gets id of last registered payment
-     * @return  id of last registered payment
+     * Gets one page of received payments, newest first
+     *
+     * @param receiverId    id of receiver
+     * @param after         cursor returned with the previous page, null for the first page
+     * @param pageSize      maximum number of payments on the page
+     * @return              page of received payments
      */
-    public int getLastId() {
-        int returnValue = 0;
-        try {
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery("select count(*) from payments");
-            resultSet.next();
-            returnValue = resultSet.getInt(1);
-            statement.close();
-        } catch (Exception e) {
-            System.err.println(e);
+    public PaymentPage getReceivedPayments(int receiverId, PaymentCursor after, int pageSize) {
+        return RECEIVED_TIMER.time(() -> {
+            return loadPage(after == null ? RECEIVED_FIRST_PAGE : RECEIVED_PAGE, receiverId, false, after, pageSize);
+        });
+    }
+
+    /**
+     * Gets one page of sent payments, newest first
+     *
+     * @param senderId      id of sender
+     * @param after         cursor returned with the previous page, null for the first page
+     * @param pageSize      maximum number of payments on the page
+     * @return              page of sent payments
+     */
+    public PaymentPage getSentPayments(int senderId, PaymentCursor after, int pageSize) {
+        return SENT_TIMER.time(() -> {
+            return loadPage(after == null ? SENT_FIRST_PAGE : SENT_PAGE, senderId, true, after, pageSize);
+        });
+    }
+
+    private PaymentPage loadPage(NamedStatement query, int customerId, boolean sent, PaymentCursor after, int pageSize) {
+        // taken before the query, a payment missing here was committed before the query started.
+        // Asynchronous transfers and ledger settlements both queue their rows, so this is always checked
+        List<Payment> unflushed = unflushedPayments(customerId, sent, after);
+
+        // one extra row tells whether another page follows
+        List<Payment> payments = queryPayments(query, customerId, after, pageSize + 1);
+        if (!unflushed.isEmpty()) {
+            payments = merge(payments, unflushed, pageSize + 1);
+        }
+
+        PaymentCursor next = null;
+        if (payments.size() > pageSize) {
+            payments = payments.subList(0, pageSize);
+            Payment last = payments.get(pageSize - 1);
+            next = new PaymentCursor(last.getTime(), last.getPaymentId());
         }
-        return returnValue;
+        return new PaymentPage(withNames(payments), next);
     }
 
+    /**
+     * Streams all stored payments of a customer, sent and received, oldest first, without holding them in memory.
+     * Payments still queued in the payment writer are not included.
+     *
+     * @param customerId    sender or receiver of the payments
+     * @param consumer      receives every payment, names are not resolved
+     */
+    public void forEachPaymentOf(int customerId, Consumer<Payment> consumer) {
+        FOR_EACH_OF_CUSTOMER_TIMER.run(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = ALL_OF_CUSTOMER.prepare(connection)) {
+                statement.setInt(1, customerId);
+                statement.setInt(2, customerId);
+                streamPayments(statement, consumer);
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToLoadResultException("Failed to load list of payments");
+            }
+        });
+    }
 
     /**
-     * Gets list of received payments
+     * Streams all stored payments in id order without holding them in memory
      *
-     * @param receiverId    id of receiver
-     * @return              List of sent payments
+     * @param consumer      receives every payment, names are not resolved
      */
-    public List<Payment> getReceivedPayments(int receiverId) {
-        List<Payment> paymentsList = new ArrayList<>();
-        try (Statement statement = connection.createStatement()) {
-            String query = PAYMENTS_QUERY + " where reciever_id = " + receiverId;
+    public void forEachPayment(Consumer<Payment> consumer) {
+        FOR_EACH_TIMER.run(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = ALL.prepare(connection)) {
+                streamPayments(statement, consumer);
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToLoadResultException("Failed to load list of payments");
+            }
+        });
+    }
 
-            ResultSet resultSet = statement.executeQuery(query);
+    private void streamPayments(PreparedStatement statement, Consumer<Payment> consumer) throws SQLException {
+        statement.setFetchSize(STREAMING_FETCH_SIZE);
+        ResultSet resultSet = statement.executeQuery();
+        while (resultSet.next()) {
+            consumer.accept(new Payment(
+                    resultSet.getInt(1),
+                    resultSet.getInt(2),
+                    null,
+                    resultSet.getInt(3),
+                    null,
+                    resultSet.getLong(4),
+                    resultSet.getTimestamp(5).toLocalDateTime()
+            ));
+        }
+    }
+
+    private List<Payment> queryPayments(NamedStatement query, int customerId, PaymentCursor after, int limit) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement statement = query.prepare(connection)) {
+            statement.setFetchSize(limit);
+            int index = 1;
+            statement.setInt(index++, customerId);
+            if (after != null) {
+                Timestamp lastTime = Timestamp.valueOf(after.getLastTime());
+                statement.setTimestamp(index++, lastTime);
+                statement.setTimestamp(index++, lastTime);
+                statement.setInt(index++, after.getLastPaymentId());
+            }
+            statement.setInt(index, limit);
+
+            List<Payment> payments = new ArrayList<>(limit);
+            ResultSet resultSet = statement.executeQuery();
             while (resultSet.next()) {
-                paymentsList.add(
+                payments.add(
                         new Payment(
                                 resultSet.getInt(1),
-                                resultSet.getString(2),
+                                resultSet.getInt(2),
+                                null,
                                 resultSet.getInt(3),
-                                resultSet.getString(4),
-                                resultSet.getDouble(5),
-                                resultSet.getString(6)
+                                null,
+                                resultSet.getLong(4),
+                                resultSet.getTimestamp(5).toLocalDateTime()
                         )
                 );
             }
-
-            return paymentsList;
+            return payments;
         } catch (SQLException e) {
             System.err.println(e);
             throw new FailedToLoadResultException("Failed to load list of payments");
@@ -100,35 +226,58 @@ public class PaymentDao {
     }
 
     /**
-     * Gets list of sent payments
-     *
-     * @param senderId  id of sender
-     * @return          List of received payments
+     * @return payments of the customer still queued in the payment writer, older than the cursor
      */
-    public List<Payment> getSentPayments(int senderId){
-        List<Payment> paymentsList = new ArrayList<>();
-        try(Statement statement = connection.createStatement()){
-            String query = PAYMENTS_QUERY + " where sender_id = " + senderId;
+    private List<Payment> unflushedPayments(int customerId, boolean sent, PaymentCursor after) {
+        List<Payment> payments = new ArrayList<>();
+        for (Payment payment : paymentWriter.getUnflushed()) {
+            int owner = sent ? payment.getSenderId() : payment.getRecieverId();
+            if (owner == customerId && (after == null || isOlderThan(payment, after))) {
+                payments.add(payment);
+            }
+        }
+        return payments;
+    }
 
-            ResultSet resultSet = statement.executeQuery(query);
+    private boolean isOlderThan(Payment payment, PaymentCursor cursor) {
+        int byTime = payment.getTime().compareTo(cursor.getLastTime());
+        return byTime < 0 || (byTime == 0 && payment.getPaymentId() < cursor.getLastPaymentId());
+    }
 
-            while (resultSet.next()) {
-                paymentsList.add(
-                        new Payment(
-                                resultSet.getInt(1),
-                                resultSet.getString(2),
-                                resultSet.getInt(3),
-                                resultSet.getString(4),
-                                resultSet.getDouble(5),
-                                resultSet.getString(6)
-                        )
-                );
-            }
-            return paymentsList;
-        }catch (SQLException e){
-            System.err.println(e);
-            throw new FailedToLoadResultException("Failed to load list of payments");
+    /**
+     * Merges queued payments into the rows read from the database, a payment flushed
+     * in between may be in both lists
+     */
+    private List<Payment> merge(List<Payment> stored, List<Payment> unflushed, int limit) {
+        Map<Integer, Payment> byId = new HashMap<>();
+        for (Payment payment : unflushed) {
+            byId.put(payment.getPaymentId(), payment);
+        }
+        for (Payment payment : stored) {
+            byId.put(payment.getPaymentId(), payment);
+        }
+        List<Payment> merged = new ArrayList<>(byId.values());
+        merged.sort(NEWEST_FIRST_ORDER);
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
+
+    /**
+     * @return copies of the payments with sender and receiver names, looked up once per page
+     */
+    private List<Payment> withNames(List<Payment> payments) {
+        Set<Integer> customerIds = new HashSet<>();
+        for (Payment payment : payments) {
+            customerIds.add(payment.getSenderId());
+            customerIds.add(payment.getRecieverId());
         }
+        Map<Integer, String> names = customerDao.getDisplayNames(customerIds);
+
+        List<Payment> named = new ArrayList<>(payments.size());
+        for (Payment payment : payments) {
+            named.add(new Payment(payment.getPaymentId(), payment.getSenderId(), names.get(payment.getSenderId()),
+                    payment.getRecieverId(), names.get(payment.getRecieverId()), payment.getAmount(), payment.getTime()));
+        }
+        return named;
     }
 
 
@@ -137,25 +286,65 @@ public class PaymentDao {
      *
      * @param senderId
      * @param receiverId
-     * @param amount
+     * @param amount      amount in minor units
      * @param time
-     * @param date
      * @throws FailedToCreateRecordException    If an error occurs
      */
-    public void createPayment(int senderId, int receiverId, double amount, String time, String date) throws FailedToCreateRecordException {
-        String query = "insert into payments values (?,?,?,?,?,?)";
+    public void createPayment(int senderId, int receiverId, long amount, LocalDateTime time) throws FailedToCreateRecordException {
+        CREATE_TIMER.run(() -> {
+            // reserved before borrowing, so one insert never holds two pooled connections
+            int paymentId = IdAllocator.payments().nextId();
 
-        try (PreparedStatement statement = connection.prepareStatement(query)) {
-            statement.setInt(1, getLastId() + 1);
+            try (Connection connection = connectionProvider.getConnection()) {
+                connection.setAutoCommit(false);
+                try {
+                    insertPayment(connection, paymentId, senderId, receiverId, amount, time);
+                    connection.commit();
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToCreateRecordException("Failed to create payment record");
+            }
+        });
+    }
+
+    /**
+     * Inserts payment row and adds it to the payment summaries using the caller's connection,
+     * the caller's transaction keeps both consistent
+     */
+    void insertPayment(Connection connection, int paymentId, int senderId, int receiverId, long amount,
+                       LocalDateTime time) throws SQLException {
+        try (PreparedStatement statement = INSERT.prepare(connection)) {
+            statement.setInt(1, paymentId);
             statement.setInt(2, senderId);
             statement.setInt(3, receiverId);
-            statement.setDouble(4, amount);
-            statement.setString(5, time);
-            statement.setString(6, date);
+            statement.setLong(4, amount);
+            statement.setTimestamp(5, Timestamp.valueOf(time));
             statement.executeUpdate();
-        } catch (SQLException e) {
-            System.err.println(e);
-            throw new FailedToCreateRecordException("Failed to create payment record");
         }
+        paymentSummaryDao.addPayments(connection,
+                Collections.singletonList(new Payment(paymentId, senderId, null, receiverId, null, amount, time)));
+    }
+
+    /**
+     * Inserts many payment rows with one batch and adds them to the payment summaries,
+     * using the caller's connection like insertPayment
+     */
+    void insertPayments(Connection connection, List<Payment> payments) throws SQLException {
+        try (PreparedStatement statement = INSERT.prepare(connection)) {
+            for (Payment payment : payments) {
+                statement.setInt(1, payment.getPaymentId());
+                statement.setInt(2, payment.getSenderId());
+                statement.setInt(3, payment.getRecieverId());
+                statement.setLong(4, payment.getAmount());
+                statement.setTimestamp(5, Timestamp.valueOf(payment.getTime()));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        paymentSummaryDao.addPayments(connection, payments);
     }
 }
@@ -0,0 +1,167 @@
+package com.sammdev.db.dao;
+
+import com.sammdev.db.connection.ConnectionProvider;
+import com.sammdev.db.model.Payment;
+import com.sammdev.db.model.PaymentSummary;
+import com.sammdev.db.statement.NamedStatement;
+import com.sammdev.db.statement.StatementRegistry;
+import com.sammdev.enums.PaymentHistoryType;
+import com.sammdev.exception.FailedToLoadResultException;
+import com.sammdev.metrics.MethodTimer;
+import com.sammdev.metrics.Metrics;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Monthly sent and received totals per customer, kept in payment_summaries.
+ * Rows are updated by whoever inserts payments, in the same transaction as the payment rows.
+ */
+public class PaymentSummaryDao {
+
+    private static final PaymentSummaryDao instance = new PaymentSummaryDao();
+
+    private static final StatementRegistry statements = StatementRegistry.getInstance();
+    private static final NamedStatement ADD_TO_SUMMARY = statements.declare("paymentSummaries.add",
+            "INSERT INTO payment_summaries (customer_id, month, direction, total, payment_count) VALUES (?,?,?,?,?) " +
+            "ON DUPLICATE KEY UPDATE total = total + VALUES(total), payment_count = payment_count + VALUES(payment_count)");
+    private static final NamedStatement SUMMARIES = statements.declare("paymentSummaries.byCustomer",
+            "SELECT month, direction, total, payment_count FROM payment_summaries " +
+            "WHERE customer_id = ? AND month >= ? AND month <= ? ORDER BY month DESC");
+
+    private static final Metrics metrics = Metrics.getInstance();
+    private static final MethodTimer ADD_TIMER = metrics.timer("paymentSummaryDao.addPayments");
+    private static final MethodTimer SUMMARIES_TIMER = metrics.timer("paymentSummaryDao.getSummaries");
+
+    // every writer locks summary rows in this order, so two payment batches never wait for each other in a cycle
+    private static final Comparator<SummaryKey> LOCK_ORDER = Comparator
+            .comparingInt((SummaryKey key) -> key.customerId)
+            .thenComparing(key -> key.month)
+            .thenComparing(key -> key.direction);
+
+    private final ConnectionProvider connectionProvider = ConnectionProvider.getInstance();
+
+    private PaymentSummaryDao() {
+        // hide constructor, singleton pattern
+    }
+
+    public static PaymentSummaryDao getInstance() {
+        return instance;
+    }
+
+    /**
+     * Adds payments to the summaries of their senders and receivers using the caller's connection,
+     * so it takes part in the transaction inserting the payment rows
+     *
+     * @param connection    connection of the payment insert
+     * @param payments      newly inserted payments, names are not needed
+     * @throws SQLException if updating fails
+     */
+    public void addPayments(Connection connection, Collection<Payment> payments) throws SQLException {
+        ADD_TIMER.run(() -> {
+            if (payments.isEmpty()) {
+                return;
+            }
+            // a batch of payments touches each summary row once
+            Map<SummaryKey, long[]> totals = new TreeMap<>(LOCK_ORDER);
+            for (Payment payment : payments) {
+                YearMonth month = YearMonth.from(payment.getTime());
+                add(totals, new SummaryKey(payment.getSenderId(), month, PaymentHistoryType.SEND), payment.getAmount());
+                add(totals, new SummaryKey(payment.getRecieverId(), month, PaymentHistoryType.RECEIVED), payment.getAmount());
+            }
+
+            try (PreparedStatement statement = ADD_TO_SUMMARY.prepare(connection)) {
+                for (Map.Entry<SummaryKey, long[]> entry : totals.entrySet()) {
+                    SummaryKey key = entry.getKey();
+                    statement.setInt(1, key.customerId);
+                    statement.setDate(2, Date.valueOf(key.month.atDay(1)));
+                    statement.setString(3, key.direction.name());
+                    statement.setLong(4, entry.getValue()[0]);
+                    statement.setLong(5, entry.getValue()[1]);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Gets monthly summaries of a customer, newest month first
+     *
+     * @param customerId    id of the customer
+     * @param from          first month, inclusive
+     * @param to            last month, inclusive
+     * @return              summaries of months with at least one payment
+     */
+    public List<PaymentSummary> getSummaries(int customerId, YearMonth from, YearMonth to) {
+        return SUMMARIES_TIMER.time(() -> {
+            List<PaymentSummary> summaries = new ArrayList<>();
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = SUMMARIES.prepare(connection)) {
+                statement.setInt(1, customerId);
+                statement.setDate(2, Date.valueOf(from.atDay(1)));
+                statement.setDate(3, Date.valueOf(to.atDay(1)));
+                ResultSet resultSet = statement.executeQuery();
+
+                // rows of one month are adjacent, sent and received rows are merged into one summary
+                YearMonth month = null;
+                long sentTotal = 0, receivedTotal = 0;
+                int sentCount = 0, receivedCount = 0;
+                while (resultSet.next()) {
+                    YearMonth rowMonth = YearMonth.from(resultSet.getDate(1).toLocalDate());
+                    if (month != null && !month.equals(rowMonth)) {
+                        summaries.add(new PaymentSummary(month, sentTotal, sentCount, receivedTotal, receivedCount));
+                        sentTotal = receivedTotal = 0;
+                        sentCount = receivedCount = 0;
+                    }
+                    month = rowMonth;
+                    if (PaymentHistoryType.SEND.name().equals(resultSet.getString(2))) {
+                        sentTotal = resultSet.getLong(3);
+                        sentCount = resultSet.getInt(4);
+                    } else {
+                        receivedTotal = resultSet.getLong(3);
+                        receivedCount = resultSet.getInt(4);
+                    }
+                }
+                if (month != null) {
+                    summaries.add(new PaymentSummary(month, sentTotal, sentCount, receivedTotal, receivedCount));
+                }
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToLoadResultException("Failed to load payment summaries!");
+            }
+            return summaries;
+        });
+    }
+
+    private void add(Map<SummaryKey, long[]> totals, SummaryKey key, long amount) {
+        long[] total = totals.computeIfAbsent(key, k -> new long[2]);
+        total[0] += amount;
+        total[1]++;
+    }
+
+    /**
+     * Primary key of a payment_summaries row
+     */
+    private static class SummaryKey {
+        private final int customerId;
+        private final YearMonth month;
+        private final PaymentHistoryType direction;
+
+        private SummaryKey(int customerId, YearMonth month, PaymentHistoryType direction) {
+            this.customerId = customerId;
+            this.month = month;
+            this.direction = direction;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.sammdev.db.dao;
+
+import com.sammdev.db.connection.ConnectionProvider;
+import com.sammdev.db.model.Payment;
+import com.sammdev.db.statement.NamedStatement;
+import com.sammdev.db.statement.StatementRegistry;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.sammdev.db.config.DbConfig.PAYMENT_WRITER_BATCH_SIZE;
+import static com.sammdev.db.config.DbConfig.PAYMENT_WRITER_DEAD_LETTER_FILE;
+import static com.sammdev.db.config.DbConfig.PAYMENT_WRITER_FLUSH_INTERVAL_MS;
+import static com.sammdev.db.config.DbConfig.PAYMENT_WRITER_MAX_ATTEMPTS;
+import static com.sammdev.db.config.DbConfig.PAYMENT_WRITER_QUEUE_SIZE;
+import static com.sammdev.db.config.DbConfig.PAYMENT_WRITER_SHUTDOWN_TIMEOUT_MS;
+
+/**
+ * Writes payment rows of committed transfers in the background, in JDBC batches sent when
+ * a batch is full or the flush interval passed. A full queue blocks the transfer that enqueues,
+ * so a slow database slows transfers down instead of filling the memory.
+ * Rows stay visible through getUnflushed until their batch is committed,
+ * payment summaries include a row once its batch is committed.
+ * Connection and rollback errors are retried a few times, rows that still can not be stored
+ * are appended to the dead letter file instead of blocking the writer.
+ */
+public class PaymentWriter {
+
+    private static final PaymentWriter instance = new PaymentWriter();
+
+    // a retried batch may have been committed before the connection failed, its stored rows are left out first
+    private static final StatementRegistry statements = StatementRegistry.getInstance();
+    private static final NamedStatement INSERT_PAYMENTS = statements.declare("paymentWriter.insert",
+            "insert into payments (payment_id, sender_id, reciever_id, amount, created_at) values (?,?,?,?,?)");
+    private static final NamedStatement STORED_PAYMENTS = statements.declare("paymentWriter.stored",
+            "select payment_id from payments where payment_id in (%s)");
+    private static final long RETRY_PAUSE_MS = 1_000;
+
+    private final ConnectionProvider connectionProvider = ConnectionProvider.getInstance();
+    private final PaymentSummaryDao paymentSummaryDao = PaymentSummaryDao.getInstance();
+    private final BlockingQueue<Payment> queue = new ArrayBlockingQueue<>(PAYMENT_WRITER_QUEUE_SIZE);
+    private final Map<Integer, Payment> unflushed = new ConcurrentHashMap<>();
+
+    private Thread writerThread;
+    private volatile boolean running;
+
+    private PaymentWriter() {
+        // hide constructor, singleton pattern
+    }
+
+    public static PaymentWriter getInstance() {
+        return instance;
+    }
+
+    /**
+     * Queues a payment row, waits while the queue is full
+     *
+     * @param payment   payment of a committed transfer, names are not needed
+     */
+    public void enqueue(Payment payment) {
+        unflushed.put(payment.getPaymentId(), payment);
+        if (!start()) {
+            // after shutdown nobody drains the queue
+            store(Collections.singletonList(payment));
+            return;
+        }
+        try {
+            queue.put(payment);
+        } catch (InterruptedException e) {
+            // the transfer is committed already, its payment row must not be dropped
+            store(Collections.singletonList(payment));
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return payments queued or being written, not necessarily visible in the payments table yet
+     */
+    public List<Payment> getUnflushed() {
+        return new ArrayList<>(unflushed.values());
+    }
+
+    /**
+     * Writes everything still queued and stops the writer thread. Every row not confirmed written within
+     * the shutdown timeout, queued or in the batch being written, is moved to the dead letter file.
+     */
+    public void shutdown() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = writerThread;
+        }
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(PAYMENT_WRITER_SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            // the writer is a daemon and dies with the process, the batch it holds is as unconfirmed as the queue.
+            // If it still stores a row, replaying the file inserts that row again and payment_id rejects the copy
+            queue.drainTo(new ArrayList<>());
+            List<Payment> pending = getUnflushed();
+            System.err.println("Payment writer did not finish within " + PAYMENT_WRITER_SHUTDOWN_TIMEOUT_MS + " ms, "
+                    + pending.size() + " unconfirmed payments are moved to " + PAYMENT_WRITER_DEAD_LETTER_FILE);
+            if (!pending.isEmpty()) {
+                deadLetter(pending, "not confirmed written before shutdown");
+            }
+        }
+    }
+
+    /**
+     * @return false if the writer was shut down already
+     */
+    private synchronized boolean start() {
+        if (writerThread == null) {
+            running = true;
+            writerThread = new Thread(this::writeLoop, "payment-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+        return running;
+    }
+
+    private void writeLoop() {
+        List<Payment> batch = new ArrayList<>(PAYMENT_WRITER_BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                Payment first = queue.poll(PAYMENT_WRITER_FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // wait for a full batch, but never longer than the flush interval after the first row
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PAYMENT_WRITER_FLUSH_INTERVAL_MS);
+                while (batch.size() < PAYMENT_WRITER_BATCH_SIZE) {
+                    queue.drainTo(batch, PAYMENT_WRITER_BATCH_SIZE - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() == PAYMENT_WRITER_BATCH_SIZE || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Payment next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // shutdown waits for the queue to drain, interrupts do not end the loop
+            }
+
+            if (!batch.isEmpty()) {
+                store(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Stores the rows, their transfers are committed and must get a payment record. A batch failing with
+     * an error that is not worth retrying is split into single rows, so only the offending rows are
+     * moved to the dead letter file.
+     */
+    private void store(List<Payment> payments) {
+        SQLException failure = tryWrite(payments);
+        if (failure == null) {
+            forget(payments);
+            return;
+        }
+        if (payments.size() > 1 && !isTransient(failure)) {
+            for (Payment payment : payments) {
+                store(Collections.singletonList(payment));
+            }
+            return;
+        }
+        deadLetter(payments, String.valueOf(failure));
+        forget(payments);
+    }
+
+    /**
+     * Writes the rows, retrying connection and rollback errors up to the maximum attempts
+     *
+     * @return  null if the rows are stored, otherwise the last error
+     */
+    private SQLException tryWrite(List<Payment> payments) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                write(payments, attempt > 1);
+                return null;
+            } catch (SQLException e) {
+                if (!isTransient(e) || attempt >= PAYMENT_WRITER_MAX_ATTEMPTS) {
+                    return e;
+                }
+                System.err.println("Failed to write " + payments.size() + " payments, attempt " + attempt
+                        + " of " + PAYMENT_WRITER_MAX_ATTEMPTS + ": " + e);
+                try {
+                    Thread.sleep(RETRY_PAUSE_MS * attempt);
+                } catch (InterruptedException interrupted) {
+                    // keep retrying, shutdown waits for the writer to finish
+                }
+            } catch (RuntimeException e) {
+                return new SQLException(e);
+            }
+        }
+    }
+
+    /**
+     * @return true for lost connections (SQLState 08), deadlocks and lock wait timeouts (SQLState 40)
+     *         and pool timeouts, which may succeed when tried again
+     */
+    private boolean isTransient(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTransientException
+                || state != null && (state.startsWith("08") || state.startsWith("40"));
+    }
+
+    private void forget(List<Payment> payments) {
+        for (Payment payment : payments) {
+            unflushed.remove(payment.getPaymentId());
+        }
+    }
+
+    /**
+     * Appends the rows to the dead letter file as payment_id,sender_id,receiver_id,amount,created_at,error.
+     * If even that fails the rows are printed to the error output, so they are never lost silently.
+     */
+    private synchronized void deadLetter(List<Payment> payments, String error) {
+        System.err.println("Failed to write " + payments.size() + " payments, moved to "
+                + PAYMENT_WRITER_DEAD_LETTER_FILE + ": " + error);
+        String reason = error.replace('\n', ' ').replace(',', ';');
+        StringBuilder lines = new StringBuilder();
+        for (Payment payment : payments) {
+            lines.append(payment.getPaymentId()).append(',')
+                    .append(payment.getSenderId()).append(',')
+                    .append(payment.getRecieverId()).append(',')
+                    .append(payment.getAmount()).append(',')
+                    .append(Timestamp.valueOf(payment.getTime())).append(',')
+                    .append(reason).append('\n');
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(PAYMENT_WRITER_DEAD_LETTER_FILE),
+                StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(lines.toString());
+        } catch (IOException e) {
+            System.err.println(e);
+            System.err.print(lines);
+        }
+    }
+
+    /**
+     * Inserts the payments and adds them to the payment summaries in one transaction
+     *
+     * @param retry     true if an earlier attempt may have been committed, stored payments are left out of the summaries
+     */
+    private void write(List<Payment> payments, boolean retry) throws SQLException {
+        try (Connection connection = connectionProvider.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = INSERT_PAYMENTS.prepare(connection)) {
+                List<Payment> added = retry ? withoutStored(connection, payments) : payments;
+                for (Payment payment : added) {
+                    statement.setInt(1, payment.getPaymentId());
+                    statement.setInt(2, payment.getSenderId());
+                    statement.setInt(3, payment.getRecieverId());
+                    statement.setLong(4, payment.getAmount());
+                    statement.setTimestamp(5, Timestamp.valueOf(payment.getTime()));
+                    statement.addBatch();
+                }
+                if (!added.isEmpty()) {
+                    statement.executeBatch();
+                    paymentSummaryDao.addPayments(connection, added);
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return payments without a row in the payments table yet
+     */
+    private List<Payment> withoutStored(Connection connection, List<Payment> payments) throws SQLException {
+        List<Integer> ids = new ArrayList<>(payments.size());
+        for (Payment payment : payments) {
+            ids.add(payment.getPaymentId());
+        }
+        Set<Integer> stored = new HashSet<>();
+        try (PreparedStatement statement = STORED_PAYMENTS.prepare(connection, ids)) {
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                stored.add(resultSet.getInt(1));
+            }
+        }
+        List<Payment> missing = new ArrayList<>(payments.size());
+        for (Payment payment : payments) {
+            if (!stored.contains(payment.getPaymentId())) {
+                missing.add(payment);
+            }
+        }
+        return missing;
+    }
+}
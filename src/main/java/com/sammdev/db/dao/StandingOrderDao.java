@@ -0,0 +1,225 @@
+package com.sammdev.db.dao;
+
+import com.sammdev.db.connection.ConnectionProvider;
+import com.sammdev.db.model.StandingOrder;
+import com.sammdev.db.statement.NamedStatement;
+import com.sammdev.db.statement.StatementRegistry;
+import com.sammdev.enums.TransferItemStatus;
+import com.sammdev.exception.FailedToCreateRecordException;
+import com.sammdev.exception.FailedToLoadResultException;
+import com.sammdev.exception.FailedToUpdateRecordException;
+import com.sammdev.metrics.MethodTimer;
+import com.sammdev.metrics.Metrics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Standing orders in standing_orders. Due orders are claimed by moving their next_execution forward
+ * in a short transaction, before any money moves: an order is executed at most once per period,
+ * even with several schedulers or application instances claiming at the same time.
+ */
+public class StandingOrderDao {
+
+    private static final StandingOrderDao instance = new StandingOrderDao();
+
+    private static final String COLUMNS =
+            "id, sender_id, receiver_id, amount, period_months, first_execution, next_execution, last_executed_at, last_status";
+
+    private static final StatementRegistry statements = StatementRegistry.getInstance();
+    private static final NamedStatement INSERT = statements.declare("standingOrders.insert",
+            "INSERT INTO standing_orders (id, sender_id, receiver_id, amount, period_months, first_execution, next_execution) " +
+            "VALUES (?,?,?,?,?,?,?)");
+    private static final NamedStatement BY_SENDER = statements.declare("standingOrders.bySender",
+            "SELECT " + COLUMNS + " FROM standing_orders WHERE sender_id = ? ORDER BY id");
+    private static final NamedStatement DELETE = statements.declare("standingOrders.delete",
+            "DELETE FROM standing_orders WHERE id = ? AND sender_id = ?");
+    // reads the due index range only, rows claimed by another transaction are skipped instead of waited for
+    private static final NamedStatement LOCK_DUE = statements.declare("standingOrders.lockDue",
+            "SELECT " + COLUMNS + " FROM standing_orders WHERE next_execution <= ? " +
+            "ORDER BY next_execution, id LIMIT ? FOR UPDATE SKIP LOCKED");
+    private static final NamedStatement ADVANCE = statements.declare("standingOrders.advance",
+            "UPDATE standing_orders SET next_execution = ? WHERE id = ?");
+    private static final NamedStatement RECORD_RESULT = statements.declare("standingOrders.recordResult",
+            "UPDATE standing_orders SET last_executed_at = ?, last_status = ? WHERE id = ?");
+
+    private static final Metrics metrics = Metrics.getInstance();
+    private static final MethodTimer CREATE_TIMER = metrics.timer("standingOrderDao.createOrder");
+    private static final MethodTimer BY_SENDER_TIMER = metrics.timer("standingOrderDao.getOrders");
+    private static final MethodTimer DELETE_TIMER = metrics.timer("standingOrderDao.deleteOrder");
+    private static final MethodTimer CLAIM_TIMER = metrics.timer("standingOrderDao.claimDue");
+    private static final MethodTimer RECORD_TIMER = metrics.timer("standingOrderDao.recordResults");
+
+    private final ConnectionProvider connectionProvider = ConnectionProvider.getInstance();
+
+    private StandingOrderDao() {
+        // hide constructor, singleton pattern
+    }
+
+    public static StandingOrderDao getInstance() {
+        return instance;
+    }
+
+    /**
+     * Stores a new standing order, first executed at its first execution time
+     *
+     * @param senderId          who pays
+     * @param receiverId        who receives the payments
+     * @param amount            amount of every payment in minor units
+     * @param periodMonths      months between two payments
+     * @param firstExecution    time of the first payment
+     * @return                  id of the new order
+     * @throws FailedToCreateRecordException if an error occurs
+     */
+    public int createOrder(int senderId, int receiverId, long amount, int periodMonths, LocalDateTime firstExecution)
+            throws FailedToCreateRecordException {
+        return CREATE_TIMER.time(() -> {
+            int id = IdAllocator.standingOrders().nextId();
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = INSERT.prepare(connection)) {
+                statement.setInt(1, id);
+                statement.setInt(2, senderId);
+                statement.setInt(3, receiverId);
+                statement.setLong(4, amount);
+                statement.setInt(5, periodMonths);
+                statement.setTimestamp(6, Timestamp.valueOf(firstExecution));
+                statement.setTimestamp(7, Timestamp.valueOf(firstExecution));
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToCreateRecordException("Failed to create standing order!");
+            }
+            return id;
+        });
+    }
+
+    /**
+     * @param senderId  who pays
+     * @return          standing orders of the sender, oldest first
+     */
+    public List<StandingOrder> getOrders(int senderId) {
+        return BY_SENDER_TIMER.time(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = BY_SENDER.prepare(connection)) {
+                statement.setInt(1, senderId);
+                return readOrders(statement.executeQuery());
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToLoadResultException("Failed to load standing orders!");
+            }
+        });
+    }
+
+    /**
+     * @param senderId  who pays, orders of other customers are not deleted
+     * @param id        id of the order
+     * @return          true if the order existed
+     */
+    public boolean deleteOrder(int senderId, int id) {
+        return DELETE_TIMER.time(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = DELETE.prepare(connection)) {
+                statement.setInt(1, id);
+                statement.setInt(2, senderId);
+                return statement.executeUpdate() > 0;
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToUpdateRecordException("Failed to cancel standing order!");
+            }
+        });
+    }
+
+    /**
+     * Claims up to limit orders due at the given time and moves each to its next execution after it.
+     * The returned orders belong to the caller only, their payments are executed after this commit.
+     * If the caller dies before paying them, those payments are skipped, never repeated.
+     *
+     * @param now       current time
+     * @param limit     maximum number of claimed orders
+     * @return          claimed orders with the execution time they were due at, earliest first
+     */
+    public List<StandingOrder> claimDue(LocalDateTime now, int limit) {
+        return CLAIM_TIMER.time(() -> {
+            try (Connection connection = connectionProvider.getConnection()) {
+                connection.setAutoCommit(false);
+                try {
+                    List<StandingOrder> claimed;
+                    try (PreparedStatement statement = LOCK_DUE.prepare(connection)) {
+                        statement.setTimestamp(1, Timestamp.valueOf(now));
+                        statement.setInt(2, limit);
+                        claimed = readOrders(statement.executeQuery());
+                    }
+                    if (!claimed.isEmpty()) {
+                        try (PreparedStatement statement = ADVANCE.prepare(connection)) {
+                            for (StandingOrder order : claimed) {
+                                statement.setTimestamp(1, Timestamp.valueOf(order.nextExecutionAfter(now)));
+                                statement.setInt(2, order.getId());
+                                statement.addBatch();
+                            }
+                            statement.executeBatch();
+                        }
+                    }
+                    connection.commit();
+                    return claimed;
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToUpdateRecordException("Failed to claim standing orders!");
+            }
+        });
+    }
+
+    /**
+     * Stores the outcome of executed orders with one batch
+     *
+     * @param orders        executed orders
+     * @param statuses      outcome of every order, indexed like orders
+     * @param executedAt    time of the execution
+     */
+    public void recordResults(List<StandingOrder> orders, TransferItemStatus[] statuses, LocalDateTime executedAt) {
+        RECORD_TIMER.run(() -> {
+            try (Connection connection = connectionProvider.getConnection();
+                 PreparedStatement statement = RECORD_RESULT.prepare(connection)) {
+                for (int i = 0; i < orders.size(); i++) {
+                    statement.setTimestamp(1, Timestamp.valueOf(executedAt));
+                    statement.setString(2, statuses[i].name());
+                    statement.setInt(3, orders.get(i).getId());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } catch (SQLException e) {
+                System.err.println(e);
+                throw new FailedToUpdateRecordException("Failed to record standing order results!");
+            }
+        });
+    }
+
+    private List<StandingOrder> readOrders(ResultSet resultSet) throws SQLException {
+        List<StandingOrder> orders = new ArrayList<>();
+        while (resultSet.next()) {
+            Timestamp lastExecutedAt = resultSet.getTimestamp(8);
+            String lastStatus = resultSet.getString(9);
+            orders.add(new StandingOrder(
+                    resultSet.getInt(1),
+                    resultSet.getInt(2),
+                    resultSet.getInt(3),
+                    resultSet.getLong(4),
+                    resultSet.getInt(5),
+                    resultSet.getTimestamp(6).toLocalDateTime(),
+                    resultSet.getTimestamp(7).toLocalDateTime(),
+                    lastExecutedAt == null ? null : lastExecutedAt.toLocalDateTime(),
+                    lastStatus == null ? null : TransferItemStatus.valueOf(lastStatus)
+            ));
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,427 @@
+package com.sammdev.db.dao;
+
+import com.sammdev.db.cache.BalanceCache;
+import com.sammdev.db.connection.ConnectionProvider;
+import com.sammdev.db.model.Balance;
+import com.sammdev.db.model.Payment;
+import com.sammdev.db.model.TransferBatchResult;
+import com.sammdev.db.model.TransferItem;
+import com.sammdev.db.statement.NamedStatement;
+import com.sammdev.db.statement.StatementRegistry;
+import com.sammdev.enums.TransferItemStatus;
+import com.sammdev.exception.FailedToLoadResultException;
+import com.sammdev.exception.FailedToUpdateRecordException;
+import com.sammdev.exception.NotEnoughMoneyException;
+import com.sammdev.exception.RecordNotFoundException;
+import com.sammdev.metrics.MethodTimer;
+import com.sammdev.metrics.Metrics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sammdev.db.config.DbConfig.ASYNC_PAYMENT_WRITES;
+import static com.sammdev.db.config.DbConfig.TRANSFER_BATCH_CHUNK_SIZE;
+
+/**
+ * Moves money between two accounts and records the payment in a single transaction.
+ * With db.asyncPaymentWrites the payment row is handed to the PaymentWriter after the commit instead.
+ * Batches from one sender are applied in a few larger transactions, see transferBatch.
+ */
+public class TransferDao {
+
+    private static final TransferDao instance = new TransferDao();
+
+    private static final StatementRegistry statements = StatementRegistry.getInstance();
+    // InnoDB walks the primary key in ascending order, so both rows are always locked lowest id first
+    private static final NamedStatement LOCK_BALANCES = statements.declare("transfer.lockBalances",
+            "SELECT id, balance, version FROM balance WHERE id IN (?,?) ORDER BY id FOR UPDATE");
+    private static final NamedStatement LOCK_BATCH_BALANCES = statements.declare("transfer.lockBatchBalances",
+            "SELECT id, balance, version FROM balance WHERE id IN (%s) ORDER BY id FOR UPDATE");
+    private static final NamedStatement EXISTING_BALANCES = statements.declare("transfer.existingBalances",
+            "SELECT id FROM balance WHERE id IN (%s)");
+    private static final NamedStatement UPDATE_BALANCE = statements.declare("transfer.updateBalance",
+            "UPDATE balance SET balance=?, version=version+1 WHERE id=?");
+
+    private static final Metrics metrics = Metrics.getInstance();
+    private static final MethodTimer TRANSFER_TIMER = metrics.timer("transferDao.transfer");
+    private static final MethodTimer TRANSFER_BATCH_TIMER = metrics.timer("transferDao.transferBatch");
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final ConnectionProvider connectionProvider = ConnectionProvider.getInstance();
+    private final PaymentDao paymentDao = PaymentDao.getInstance();
+    private final BalanceCache balanceCache = BalanceCache.getInstance();
+    private final PaymentWriter paymentWriter = PaymentWriter.getInstance();
+
+    private final long startedAt = System.nanoTime();
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong totalLockWaitNanos = new AtomicLong();
+    private final AtomicLong maxLockWaitNanos = new AtomicLong();
+
+    private TransferDao() {
+        // hide constructor, singleton pattern
+    }
+
+    public static TransferDao getInstance() {
+        return instance;
+    }
+
+    /**
+     * Debits sender, credits receiver and inserts the payment record atomically
+     *
+     * @param senderId                      who sends money
+     * @param receiverId                    who receives money
+     * @param amount                        amount in minor units, must be positive
+     * @param time                          time of the payment
+     * @throws RecordNotFoundException      if either balance record does not exist
+     * @throws NotEnoughMoneyException      if sender's balance is lower than amount
+     * @throws FailedToUpdateRecordException if the transaction could not be completed
+     */
+    public void transfer(int senderId, int receiverId, long amount, LocalDateTime time)
+            throws RecordNotFoundException, NotEnoughMoneyException {
+        TRANSFER_TIMER.<RecordNotFoundException, NotEnoughMoneyException>run(() -> {
+            if (senderId == receiverId) {
+                throw new IllegalArgumentException("Sender and receiver must be different accounts");
+            }
+
+            // reserved outside of the transaction, a retried attempt reuses the same id
+            int paymentId = IdAllocator.payments().nextId();
+
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    transferOnce(paymentId, senderId, receiverId, amount, time);
+                    committed.incrementAndGet();
+                    return;
+                } catch (RecordNotFoundException | NotEnoughMoneyException e) {
+                    rejected.incrementAndGet();
+                    throw e;
+                } catch (SQLTransactionRollbackException e) {
+                    // deadlock or lock wait timeout, the whole transaction was rolled back and can be repeated
+                    if (attempt < MAX_ATTEMPTS) {
+                        retried.incrementAndGet();
+                        continue;
+                    }
+                    failed.incrementAndGet();
+                    System.err.println(e);
+                    throw new FailedToUpdateRecordException("Failed to transfer money!");
+                } catch (SQLException e) {
+                    failed.incrementAndGet();
+                    System.err.println(e);
+                    throw new FailedToUpdateRecordException("Failed to transfer money!");
+                }
+            }
+        });
+    }
+
+    /**
+     * Pays many receivers from one sender. Receivers are resolved first, the sender's balance is then checked
+     * once against the total paid to existing receivers, before any money moves. Items are then applied
+     * in transactions of db.transferBatchChunkSize payments, each locking the sender and its receivers
+     * in id order and writing balances and payments with JDBC batches.
+     * Invalid items and unknown receivers are reported per item without affecting the rest of the batch.
+     *
+     * @param senderId                      who sends money
+     * @param items                         receivers and amounts, the same receiver may appear more than once
+     * @param time                          time of the payments
+     * @return                              outcome of every item
+     * @throws RecordNotFoundException      if the sender's balance record does not exist
+     * @throws NotEnoughMoneyException      if sender's balance is lower than the total, nothing was transferred
+     */
+    public TransferBatchResult transferBatch(int senderId, List<TransferItem> items, LocalDateTime time)
+            throws RecordNotFoundException, NotEnoughMoneyException {
+        return TRANSFER_BATCH_TIMER.<TransferBatchResult, RecordNotFoundException, NotEnoughMoneyException>time(() -> {
+            TransferItemStatus[] statuses = new TransferItemStatus[items.size()];
+            int[] paymentIds = new int[items.size()];
+
+            // an unknown receiver must not count towards the total the sender has to cover
+            Set<Integer> existing = existingBalances(items);
+            List<Integer> pending = new ArrayList<>();
+            long total = 0;
+            for (int i = 0; i < items.size(); i++) {
+                TransferItem item = items.get(i);
+                if (item.getAmount() <= 0) {
+                    statuses[i] = TransferItemStatus.INVALID_AMOUNT;
+                } else if (item.getReceiverId() == senderId) {
+                    statuses[i] = TransferItemStatus.OWN_ACCOUNT;
+                } else if (!existing.contains(item.getReceiverId())) {
+                    statuses[i] = TransferItemStatus.UNKNOWN_RECEIVER;
+                } else {
+                    total = Math.addExact(total, item.getAmount());
+                    pending.add(i);
+                }
+            }
+            rejected.addAndGet(items.size() - pending.size());
+
+            for (int from = 0; from < pending.size(); from += TRANSFER_BATCH_CHUNK_SIZE) {
+                List<Integer> chunk = pending.subList(from, Math.min(pending.size(), from + TRANSFER_BATCH_CHUNK_SIZE));
+                // the first transaction checks the whole batch, later ones only what they move themselves
+                long required = from == 0 ? total : 0;
+                // reserved outside of the transaction, a retried attempt reuses the same ids
+                int firstPaymentId = IdAllocator.payments().reserveRange(chunk.size());
+
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        transferChunk(senderId, items, chunk, required, firstPaymentId, time, statuses, paymentIds);
+                        break;
+                    } catch (RecordNotFoundException | NotEnoughMoneyException e) {
+                        if (from == 0) {
+                            rejected.addAndGet(pending.size());
+                            throw e;
+                        }
+                        // money left the account after the batch was checked, the rest of the batch can not be paid
+                        markRemaining(pending, from, TransferItemStatus.NOT_ENOUGH_MONEY, statuses);
+                        rejected.addAndGet(pending.size() - from);
+                        return new TransferBatchResult(statuses, paymentIds);
+                    } catch (SQLTransactionRollbackException e) {
+                        if (attempt < MAX_ATTEMPTS) {
+                            retried.incrementAndGet();
+                            continue;
+                        }
+                        System.err.println(e);
+                        markRemaining(pending, from, TransferItemStatus.FAILED, statuses);
+                        failed.addAndGet(pending.size() - from);
+                        return new TransferBatchResult(statuses, paymentIds);
+                    } catch (SQLException e) {
+                        System.err.println(e);
+                        markRemaining(pending, from, TransferItemStatus.FAILED, statuses);
+                        failed.addAndGet(pending.size() - from);
+                        return new TransferBatchResult(statuses, paymentIds);
+                    }
+                }
+            }
+            return new TransferBatchResult(statuses, paymentIds);
+        });
+    }
+
+    /**
+     * @return counters collected since start
+     */
+    public TransferStats getStats() {
+        return new TransferStats(
+                committed.get(),
+                rejected.get(),
+                failed.get(),
+                retried.get(),
+                System.nanoTime() - startedAt,
+                totalLockWaitNanos.get(),
+                maxLockWaitNanos.get()
+        );
+    }
+
+    private void transferOnce(int paymentId, int senderId, int receiverId, long amount, LocalDateTime time)
+            throws SQLException, RecordNotFoundException, NotEnoughMoneyException {
+        try (Connection connection = connectionProvider.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                Balance sender = null, receiver = null;
+
+                long lockStart = System.nanoTime();
+                try (PreparedStatement statement = LOCK_BALANCES.prepare(connection)) {
+                    statement.setInt(1, senderId);
+                    statement.setInt(2, receiverId);
+                    ResultSet resultSet = statement.executeQuery();
+                    while (resultSet.next()) {
+                        Balance balance = new Balance(resultSet.getInt(1), resultSet.getLong(2), resultSet.getLong(3));
+                        if (balance.getId() == senderId) {
+                            sender = balance;
+                        } else {
+                            receiver = balance;
+                        }
+                    }
+                }
+                recordLockWait(System.nanoTime() - lockStart);
+
+                if (sender == null) {
+                    throw new RecordNotFoundException("Balance record with id " + senderId + " does not exist!");
+                }
+                if (receiver == null) {
+                    throw new RecordNotFoundException("Balance record with id " + receiverId + " does not exist!");
+                }
+                if (amount > sender.getAmount()) {
+                    throw new NotEnoughMoneyException("You don't have enough money to transfer!");
+                }
+
+                Balance debited = new Balance(senderId, sender.getAmount() - amount, sender.getVersion() + 1);
+                Balance credited = new Balance(receiverId, Math.addExact(receiver.getAmount(), amount), receiver.getVersion() + 1);
+
+                try (PreparedStatement statement = UPDATE_BALANCE.prepare(connection)) {
+                    statement.setLong(1, debited.getAmount());
+                    statement.setInt(2, senderId);
+                    statement.addBatch();
+                    statement.setLong(1, credited.getAmount());
+                    statement.setInt(2, receiverId);
+                    statement.addBatch();
+                    statement.executeBatch();
+                }
+
+                if (!ASYNC_PAYMENT_WRITES) {
+                    paymentDao.insertPayment(connection, paymentId, senderId, receiverId, amount, time);
+                }
+
+                connection.commit();
+
+                balanceCache.put(debited);
+                balanceCache.put(credited);
+                if (ASYNC_PAYMENT_WRITES) {
+                    paymentWriter.enqueue(new Payment(paymentId, senderId, null, receiverId, null, amount, time));
+                }
+            } catch (SQLException | RecordNotFoundException | NotEnoughMoneyException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Applies one chunk of a batch in a single transaction, statuses and payment ids of its items are set on commit
+     *
+     * @param required  balance the sender must have, at least the total of the chunk,
+     *                  lowered by the amounts of receivers that no longer exist under the lock
+     */
+    private void transferChunk(int senderId, List<TransferItem> items, List<Integer> chunk, long required,
+                               int firstPaymentId, LocalDateTime time, TransferItemStatus[] statuses, int[] paymentIds)
+            throws SQLException, RecordNotFoundException, NotEnoughMoneyException {
+        Set<Integer> ids = new TreeSet<>();
+        ids.add(senderId);
+        for (int index : chunk) {
+            ids.add(items.get(index).getReceiverId());
+        }
+
+        try (Connection connection = connectionProvider.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                // sorted ids, locked in the same order as by single transfers
+                Map<Integer, Balance> locked = new TreeMap<>();
+                long lockStart = System.nanoTime();
+                try (PreparedStatement statement = LOCK_BATCH_BALANCES.prepare(connection, new ArrayList<>(ids))) {
+                    ResultSet resultSet = statement.executeQuery();
+                    while (resultSet.next()) {
+                        locked.put(resultSet.getInt(1),
+                                new Balance(resultSet.getInt(1), resultSet.getLong(2), resultSet.getLong(3)));
+                    }
+                }
+                recordLockWait(System.nanoTime() - lockStart);
+
+                Balance sender = locked.get(senderId);
+                if (sender == null) {
+                    throw new RecordNotFoundException("Balance record with id " + senderId + " does not exist!");
+                }
+
+                // new amounts of every touched account, the sender included
+                Map<Integer, Long> amounts = new TreeMap<>();
+                List<Payment> payments = new ArrayList<>();
+                List<Integer> paid = new ArrayList<>();
+                long debit = 0;
+                for (int i = 0; i < chunk.size(); i++) {
+                    TransferItem item = items.get(chunk.get(i));
+                    Balance receiver = locked.get(item.getReceiverId());
+                    if (receiver == null) {
+                        required -= item.getAmount();
+                        continue;
+                    }
+                    debit += item.getAmount();
+                    amounts.merge(receiver.getId(), Math.addExact(receiver.getAmount(), item.getAmount()),
+                            (current, ignored) -> Math.addExact(current, item.getAmount()));
+                    payments.add(new Payment(firstPaymentId + i, senderId, null, receiver.getId(), null,
+                            item.getAmount(), time));
+                    paid.add(chunk.get(i));
+                }
+                if (Math.max(required, debit) > sender.getAmount()) {
+                    throw new NotEnoughMoneyException("You don't have enough money to transfer!");
+                }
+                amounts.put(senderId, sender.getAmount() - debit);
+
+                try (PreparedStatement statement = UPDATE_BALANCE.prepare(connection)) {
+                    for (Map.Entry<Integer, Long> amount : amounts.entrySet()) {
+                        statement.setLong(1, amount.getValue());
+                        statement.setInt(2, amount.getKey());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+
+                if (!ASYNC_PAYMENT_WRITES && !payments.isEmpty()) {
+                    paymentDao.insertPayments(connection, payments);
+                }
+
+                connection.commit();
+
+                for (Map.Entry<Integer, Long> amount : amounts.entrySet()) {
+                    Balance before = locked.get(amount.getKey());
+                    balanceCache.put(new Balance(amount.getKey(), amount.getValue(), before.getVersion() + 1));
+                }
+                if (ASYNC_PAYMENT_WRITES) {
+                    payments.forEach(paymentWriter::enqueue);
+                }
+
+                for (int index : chunk) {
+                    statuses[index] = TransferItemStatus.UNKNOWN_RECEIVER;
+                }
+                for (int i = 0; i < paid.size(); i++) {
+                    statuses[paid.get(i)] = TransferItemStatus.COMPLETED;
+                    paymentIds[paid.get(i)] = payments.get(i).getPaymentId();
+                }
+                committed.addAndGet(paid.size());
+                rejected.addAndGet(chunk.size() - paid.size());
+            } catch (SQLException | RecordNotFoundException | NotEnoughMoneyException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Reads which receivers of a batch have a balance record, without locking them
+     *
+     * @return ids of the receivers that exist
+     */
+    private Set<Integer> existingBalances(List<TransferItem> items) {
+        Set<Integer> distinct = new TreeSet<>();
+        for (TransferItem item : items) {
+            distinct.add(item.getReceiverId());
+        }
+        List<Integer> receivers = new ArrayList<>(distinct);
+        Set<Integer> existing = new HashSet<>();
+        try (Connection connection = connectionProvider.getConnection()) {
+            for (int from = 0; from < receivers.size(); from += TRANSFER_BATCH_CHUNK_SIZE) {
+                List<Integer> ids = receivers.subList(from, Math.min(receivers.size(), from + TRANSFER_BATCH_CHUNK_SIZE));
+                try (PreparedStatement statement = EXISTING_BALANCES.prepare(connection, ids)) {
+                    ResultSet resultSet = statement.executeQuery();
+                    while (resultSet.next()) {
+                        existing.add(resultSet.getInt(1));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println(e);
+            throw new FailedToLoadResultException("Failed to load receivers of the batch!");
+        }
+        return existing;
+    }
+
+    private void markRemaining(List<Integer> pending, int from, TransferItemStatus status, TransferItemStatus[] statuses) {
+        for (int index : pending.subList(from, pending.size())) {
+            statuses[index] = status;
+        }
+    }
+
+    private void recordLockWait(long nanos) {
+        totalLockWaitNanos.addAndGet(nanos);
+        maxLockWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+}
@@ -0,0 +1,67 @@
+package com.sammdev.db.dao;
+
+/**
+ * Snapshot of transfer counters
+ */
+public class TransferStats {
+    private final long committed, rejected, failed, retried, elapsedNanos, totalLockWaitNanos, maxLockWaitNanos;
+
+    public TransferStats(long committed, long rejected, long failed, long retried, long elapsedNanos,
+                         long totalLockWaitNanos, long maxLockWaitNanos) {
+        this.committed = committed;
+        this.rejected = rejected;
+        this.failed = failed;
+        this.retried = retried;
+        this.elapsedNanos = elapsedNanos;
+        this.totalLockWaitNanos = totalLockWaitNanos;
+        this.maxLockWaitNanos = maxLockWaitNanos;
+    }
+
+    public long getCommitted() {
+        return committed;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getRetried() {
+        return retried;
+    }
+
+    /**
+     * @return committed transfers per second since start
+     */
+    public double getTransfersPerSecond() {
+        return elapsedNanos == 0 ? 0 : committed * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    /**
+     * @return average time spent acquiring row locks, per attempt
+     */
+    public double getAverageLockWaitMillis() {
+        long attempts = committed + rejected + failed + retried;
+        return attempts == 0 ? 0 : totalLockWaitNanos / 1_000_000.0 / attempts;
+    }
+
+    public double getMaxLockWaitMillis() {
+        return maxLockWaitNanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferStats{" +
+                "committed=" + committed +
+                ", rejected=" + rejected +
+                ", failed=" + failed +
+                ", retried=" + retried +
+                ", transfersPerSecond=" + getTransfersPerSecond() +
+                ", averageLockWaitMs=" + getAverageLockWaitMillis() +
+                ", maxLockWaitMs=" + getMaxLockWaitMillis() +
+                '}';
+    }
+}
@@ -0,0 +1,70 @@
+package com.sammdev.db.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static com.sammdev.db.config.DbConfig.MIGRATION_CHUNK_SIZE;
+
+/**
+ * Data migration that rewrites rows of a large table.
+ * Works through primary key ranges, each range is its own short transaction,
+ * so only a chunk of rows is locked at a time.
+ */
+public class ChunkedUpdateMigration implements Migration {
+    private final int version;
+    private final String description;
+    private final String rangeQuery;
+    private final String updateQuery;
+
+    /**
+     * @param version       migration version
+     * @param description   migration description
+     * @param table         updated table
+     * @param idColumn      integer primary key of the table
+     * @param assignments   SET clause of the update
+     * @param pending       condition matching rows which were not updated yet
+     */
+    public ChunkedUpdateMigration(int version, String description, String table, String idColumn,
+                                  String assignments, String pending) {
+        this.version = version;
+        this.description = description;
+        this.rangeQuery = "SELECT MIN(" + idColumn + "), MAX(" + idColumn + ") FROM " + table + " WHERE " + pending;
+        this.updateQuery = "UPDATE " + table + " SET " + assignments +
+                " WHERE " + idColumn + " >= ? AND " + idColumn + " < ? AND " + pending;
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public void apply(Connection connection) throws SQLException {
+        long minId, maxId;
+        try (Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery(rangeQuery);
+            resultSet.next();
+            minId = resultSet.getLong(1);
+            maxId = resultSet.getLong(2);
+            if (resultSet.wasNull()) {
+                return; // nothing to update
+            }
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(updateQuery)) {
+            for (long from = minId; from <= maxId; from += MIGRATION_CHUNK_SIZE) {
+                statement.setLong(1, from);
+                statement.setLong(2, from + MIGRATION_CHUNK_SIZE);
+                statement.executeUpdate();
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.sammdev.db.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Migration altering existing tables. Every statement is executed only if information_schema shows
+ * it has not taken effect yet, so a migration interrupted between two statements can simply be run again.
+ */
+public class DdlMigration implements Migration {
+    private final int version;
+    private final String description;
+    private final SchemaChange[] changes;
+
+    public DdlMigration(int version, String description, SchemaChange... changes) {
+        this.version = version;
+        this.description = description;
+        this.changes = changes;
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public void apply(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (SchemaChange change : changes) {
+                if (!change.isApplied(connection)) {
+                    statement.execute(change.getSql());
+                }
+            }
+        }
+    }
+}
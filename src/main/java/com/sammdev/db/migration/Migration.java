@@ -0,0 +1,27 @@
+package com.sammdev.db.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * One numbered step of the database schema.
+ * Applied migrations are recorded in schema_version and never run again.
+ */
+public interface Migration {
+
+    /**
+     * @return version number, migrations are applied in ascending order
+     */
+    int getVersion();
+
+    String getDescription();
+
+    /**
+     * Applies the migration. The connection is in autocommit mode,
+     * long running migrations are expected to commit in chunks on their own.
+     *
+     * @param connection        connection used for the migration
+     * @throws SQLException     if the migration fails
+     */
+    void apply(Connection connection) throws SQLException;
+}
@@ -0,0 +1,210 @@
+package com.sammdev.db.migration;
+
+import com.sammdev.db.connection.ConnectionProvider;
+import com.sammdev.exception.MigrationFailedException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Brings the database schema up to date at startup.
+ * Every applied migration is recorded in schema_version, a named lock keeps
+ * several application instances from migrating at the same time.
+ */
+public class MigrationRunner {
+
+    private static final MigrationRunner instance = new MigrationRunner();
+
+    private static final String LOCK_NAME = "daoproject.migrations";
+    private static final int LOCK_TIMEOUT_S = 300;
+
+    private final ConnectionProvider connectionProvider = ConnectionProvider.getInstance();
+
+    private final List<Migration> migrations = Arrays.asList(
+            new SqlMigration(1, "create customers, balance and payments",
+                    "CREATE TABLE IF NOT EXISTS `customers` (" +
+                            "`id` int(11) NOT NULL, " +
+                            "`first_name` varchar(45) NOT NULL, " +
+                            "`last_name` varchar(45) NOT NULL, " +
+                            "`address` varchar(150) NOT NULL, " +
+                            "`email` varchar(100) NOT NULL, " +
+                            "`password` varchar(128) DEFAULT NULL, " +
+                            "PRIMARY KEY (`id`)" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=latin1",
+                    "CREATE TABLE IF NOT EXISTS `balance` (" +
+                            "`id` int(11) NOT NULL, " +
+                            "`balance` double NOT NULL, " +
+                            "PRIMARY KEY (`id`)" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=latin1",
+                    "CREATE TABLE IF NOT EXISTS `payments` (" +
+                            "`payment_id` int(11) NOT NULL, " +
+                            "`sender_id` int(11) NOT NULL, " +
+                            "`reciever_id` int(11) NOT NULL, " +
+                            "`amount` double NOT NULL, " +
+                            "`time` varchar(45) NOT NULL, " +
+                            "`date` varchar(45) NOT NULL, " +
+                            "PRIMARY KEY (`payment_id`)" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=latin1"),
+            new SqlMigration(2, "create id_sequences",
+                    "CREATE TABLE IF NOT EXISTS `id_sequences` (" +
+                            "`name` varchar(45) NOT NULL, " +
+                            "`next_id` int(11) NOT NULL, " +
+                            "PRIMARY KEY (`name`)" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=latin1"),
+            new DdlMigration(3, "add payments.created_at",
+                    SchemaChange.addColumn("payments", "created_at",
+                            "ALTER TABLE `payments` ADD COLUMN `created_at` DATETIME NULL")),
+            new ChunkedUpdateMigration(4, "backfill payments.created_at from date and time", "payments", "payment_id",
+                    "created_at = STR_TO_DATE(CONCAT(`date`, ' ', `time`), '%d.%m.%Y %H:%i')",
+                    "created_at IS NULL"),
+            new DdlMigration(5, "drop varchar date and time of payments",
+                    SchemaChange.repeatable("ALTER TABLE `payments` MODIFY COLUMN `created_at` DATETIME NOT NULL"),
+                    SchemaChange.removeColumn("payments", "date",
+                            "ALTER TABLE `payments` DROP COLUMN `date`, DROP COLUMN `time`")),
+            new DdlMigration(6, "index payments by sender and receiver",
+                    SchemaChange.createIndex("payments", "payments_sender_created",
+                            "CREATE INDEX `payments_sender_created` ON `payments` (`sender_id`, `created_at`, `payment_id`)"),
+                    SchemaChange.createIndex("payments", "payments_receiver_created",
+                            "CREATE INDEX `payments_receiver_created` ON `payments` (`reciever_id`, `created_at`, `payment_id`)")),
+            new DdlMigration(7, "add money columns in minor units",
+                    SchemaChange.addColumn("balance", "balance_minor",
+                            "ALTER TABLE `balance` ADD COLUMN `balance_minor` BIGINT NULL"),
+                    SchemaChange.addColumn("payments", "amount_minor",
+                            "ALTER TABLE `payments` ADD COLUMN `amount_minor` BIGINT NULL")),
+            new ChunkedUpdateMigration(8, "backfill balance in minor units", "balance", "id",
+                    "balance_minor = ROUND(balance * 100)",
+                    "balance_minor IS NULL"),
+            new ChunkedUpdateMigration(9, "backfill payment amounts in minor units", "payments", "payment_id",
+                    "amount_minor = ROUND(amount * 100)",
+                    "amount_minor IS NULL"),
+            // each table is switched by one statement, the minor units column is gone once it is done
+            new DdlMigration(10, "replace double money columns with minor units",
+                    SchemaChange.removeColumn("balance", "balance_minor",
+                            "ALTER TABLE `balance` DROP COLUMN `balance`, CHANGE COLUMN `balance_minor` `balance` BIGINT NOT NULL"),
+                    SchemaChange.removeColumn("payments", "amount_minor",
+                            "ALTER TABLE `payments` DROP COLUMN `amount`, CHANGE COLUMN `amount_minor` `amount` BIGINT NOT NULL")),
+            new DdlMigration(11, "add balance row version",
+                    SchemaChange.addColumn("balance", "version",
+                            "ALTER TABLE `balance` ADD COLUMN `version` BIGINT NOT NULL DEFAULT 0")),
+            new DdlMigration(12, "unique index on customer email",
+                    SchemaChange.createIndex("customers", "customers_email",
+                            "CREATE UNIQUE INDEX `customers_email` ON `customers` (`email`)")),
+            new SqlMigration(13, "create payment_summaries",
+                    "CREATE TABLE IF NOT EXISTS `payment_summaries` (" +
+                            "`customer_id` int(11) NOT NULL, " +
+                            "`month` DATE NOT NULL, " +
+                            "`direction` varchar(8) NOT NULL, " +
+                            "`total` BIGINT NOT NULL, " +
+                            "`payment_count` int(11) NOT NULL, " +
+                            "PRIMARY KEY (`customer_id`, `month`, `direction`)" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=latin1"),
+            new PaymentSummaryBackfill(14),
+            new SqlMigration(15, "create standing_orders",
+                    "CREATE TABLE IF NOT EXISTS `standing_orders` (" +
+                            "`id` int(11) NOT NULL, " +
+                            "`sender_id` int(11) NOT NULL, " +
+                            "`receiver_id` int(11) NOT NULL, " +
+                            "`amount` BIGINT NOT NULL, " +
+                            "`period_months` int(11) NOT NULL, " +
+                            "`first_execution` DATETIME NOT NULL, " +
+                            "`next_execution` DATETIME NOT NULL, " +
+                            "`last_executed_at` DATETIME NULL, " +
+                            "`last_status` varchar(20) NULL, " +
+                            "PRIMARY KEY (`id`), " +
+                            "KEY `standing_orders_due` (`next_execution`, `id`), " +
+                            "KEY `standing_orders_sender` (`sender_id`)" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=latin1")
+    );
+
+    private MigrationRunner() {
+        // hide constructor, singleton pattern
+    }
+
+    public static MigrationRunner getInstance() {
+        return instance;
+    }
+
+    /**
+     * Applies all migrations newer than the current schema version
+     *
+     * @throws MigrationFailedException if a migration fails, the application must not start on a half migrated schema
+     */
+    public void migrate() {
+        try (Connection connection = connectionProvider.getConnection()) {
+            lock(connection);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE TABLE IF NOT EXISTS `schema_version` (" +
+                            "`version` int(11) NOT NULL, " +
+                            "`description` varchar(200) NOT NULL, " +
+                            "`applied_at` DATETIME NOT NULL, " +
+                            "PRIMARY KEY (`version`)" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=latin1");
+                }
+
+                int currentVersion = getCurrentVersion(connection);
+                for (Migration migration : migrations) {
+                    if (migration.getVersion() > currentVersion) {
+                        apply(connection, migration);
+                    }
+                }
+            } finally {
+                unlock(connection);
+            }
+        } catch (SQLException e) {
+            System.err.println(e);
+            throw new MigrationFailedException("Failed to migrate database schema!");
+        }
+    }
+
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        try {
+            migration.apply(connection);
+        } catch (SQLException e) {
+            System.err.println("Migration " + migration.getVersion() + " failed: " + e);
+            throw e;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO schema_version (version, description, applied_at) VALUES (?,?,NOW())")) {
+            statement.setInt(1, migration.getVersion());
+            statement.setString(2, migration.getDescription());
+            statement.executeUpdate();
+        }
+        System.out.println("Applied schema migration " + migration.getVersion() + ": " + migration.getDescription());
+    }
+
+    private int getCurrentVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version");
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    /**
+     * Named locks survive the implicit commits caused by DDL statements, row locks would not
+     */
+    private void lock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.setInt(2, LOCK_TIMEOUT_S);
+            ResultSet resultSet = statement.executeQuery();
+            if (!resultSet.next() || resultSet.getInt(1) != 1) {
+                throw new SQLException("Timed out waiting for migration lock");
+            }
+        }
+    }
+
+    private void unlock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.executeQuery();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.sammdev.db.migration;
+
+import com.sammdev.db.connection.ConnectionProvider;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.sammdev.db.config.DbConfig.MIGRATION_CHUNK_SIZE;
+import static com.sammdev.db.config.DbConfig.MIGRATION_THREADS;
+
+/**
+ * Builds payment_summaries from the existing payments.
+ * Work is split into ranges of customer ids summarised in parallel on pooled connections,
+ * ranges never share a summary row, so the chunks do not lock each other.
+ * Starts from an empty table, a failed run is simply repeated at the next startup.
+ */
+public class PaymentSummaryBackfill implements Migration {
+
+    private static final String MONTH = "DATE_FORMAT(created_at, '%Y-%m-01')";
+    private static final String SENT_QUERY =
+            "INSERT INTO payment_summaries (customer_id, month, direction, total, payment_count) " +
+            "SELECT sender_id, " + MONTH + ", 'SEND', SUM(amount), COUNT(*) FROM payments " +
+            "WHERE sender_id >= ? AND sender_id < ? GROUP BY sender_id, " + MONTH;
+    private static final String RECEIVED_QUERY =
+            "INSERT INTO payment_summaries (customer_id, month, direction, total, payment_count) " +
+            "SELECT reciever_id, " + MONTH + ", 'RECEIVED', SUM(amount), COUNT(*) FROM payments " +
+            "WHERE reciever_id >= ? AND reciever_id < ? GROUP BY reciever_id, " + MONTH;
+
+    private final ConnectionProvider connectionProvider = ConnectionProvider.getInstance();
+    private final int version;
+
+    public PaymentSummaryBackfill(int version) {
+        this.version = version;
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public String getDescription() {
+        return "backfill payment summaries";
+    }
+
+    @Override
+    public void apply(Connection connection) throws SQLException {
+        long minId, maxId;
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM payment_summaries");
+            ResultSet resultSet = statement.executeQuery("SELECT MIN(id), MAX(id) FROM customers");
+            resultSet.next();
+            minId = resultSet.getLong(1);
+            maxId = resultSet.getLong(2);
+            if (resultSet.wasNull()) {
+                return; // no customers, no payments
+            }
+        }
+
+        // the migration runner keeps one pooled connection for itself
+        ExecutorService executor = Executors.newFixedThreadPool(MIGRATION_THREADS);
+        List<Future<?>> chunks = new ArrayList<>();
+        try {
+            for (long from = minId; from <= maxId; from += MIGRATION_CHUNK_SIZE) {
+                long chunkFrom = from;
+                chunks.add(executor.submit(() -> {
+                    summarise(chunkFrom, chunkFrom + MIGRATION_CHUNK_SIZE);
+                    return null;
+                }));
+            }
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof SQLException
+                    ? (SQLException) e.getCause()
+                    : new SQLException("Failed to backfill payment summaries", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Backfill of payment summaries was interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void summarise(long fromId, long toId) throws SQLException {
+        try (Connection connection = connectionProvider.getConnection()) {
+            for (String query : new String[]{SENT_QUERY, RECEIVED_QUERY}) {
+                try (PreparedStatement statement = connection.prepareStatement(query)) {
+                    statement.setLong(1, fromId);
+                    statement.setLong(2, toId);
+                    statement.executeUpdate();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.sammdev.db.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * One DDL statement together with a look into information_schema telling whether it took effect already.
+ * MySQL commits every DDL statement on its own, so a migration failing halfway has to be rerun
+ * from the start and skips the statements applied by the failed attempt.
+ */
+public class SchemaChange {
+
+    private static final String COLUMN_EXISTS =
+            "SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+    private static final String INDEX_EXISTS =
+            "SELECT COUNT(*) FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?";
+
+    private final String sql;
+    private final String existsQuery;
+    private final String table;
+    private final String name;
+    // true if the change is applied once the object exists, false if once it is gone
+    private final boolean appliedIfExists;
+
+    private SchemaChange(String sql, String existsQuery, String table, String name, boolean appliedIfExists) {
+        this.sql = sql;
+        this.existsQuery = existsQuery;
+        this.table = table;
+        this.name = name;
+        this.appliedIfExists = appliedIfExists;
+    }
+
+    /**
+     * @param table     table of the column
+     * @param column    column added by the statement
+     * @param sql       statement adding the column
+     */
+    public static SchemaChange addColumn(String table, String column, String sql) {
+        return new SchemaChange(sql, COLUMN_EXISTS, table, column, true);
+    }
+
+    /**
+     * @param table     table of the column
+     * @param column    column dropped or renamed by the statement
+     * @param sql       statement removing the column
+     */
+    public static SchemaChange removeColumn(String table, String column, String sql) {
+        return new SchemaChange(sql, COLUMN_EXISTS, table, column, false);
+    }
+
+    /**
+     * @param table     indexed table
+     * @param index     index created by the statement
+     * @param sql       statement creating the index
+     */
+    public static SchemaChange createIndex(String table, String index, String sql) {
+        return new SchemaChange(sql, INDEX_EXISTS, table, index, true);
+    }
+
+    /**
+     * @param sql   statement that can be executed again without harm, e.g. MODIFY COLUMN
+     */
+    public static SchemaChange repeatable(String sql) {
+        return new SchemaChange(sql, null, null, null, true);
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @param connection        connection of the migration
+     * @return                  true if the statement took effect already and must not be executed again
+     * @throws SQLException     if information_schema can not be read
+     */
+    public boolean isApplied(Connection connection) throws SQLException {
+        if (existsQuery == null) {
+            return false;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(existsQuery)) {
+            statement.setString(1, table);
+            statement.setString(2, name);
+            ResultSet resultSet = statement.executeQuery();
+            resultSet.next();
+            return (resultSet.getInt(1) > 0) == appliedIfExists;
+        }
+    }
+}
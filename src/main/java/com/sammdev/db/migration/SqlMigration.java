@@ -0,0 +1,41 @@
+package com.sammdev.db.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Migration made of plain SQL statements executed in the given order.
+ * The statements must be safe to execute again, like CREATE TABLE IF NOT EXISTS,
+ * changes of existing tables are made by a DdlMigration.
+ */
+public class SqlMigration implements Migration {
+    private final int version;
+    private final String description;
+    private final String[] statements;
+
+    public SqlMigration(int version, String description, String... statements) {
+        this.version = version;
+        this.description = description;
+        this.statements = statements;
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public void apply(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
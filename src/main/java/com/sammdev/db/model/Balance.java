@@ -0,0 +1,32 @@
+package com.sammdev.db.model;
+
+/**
+ * Balance of one account together with the version of its row.
+ * The version grows by one with every update of the row.
+ */
+public class Balance {
+    private final int id;
+    private final long amount;
+    private final long version;
+
+    public Balance(int id, long amount, long version) {
+        this.id = id;
+        this.amount = amount;
+        this.version = version;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return amount in minor units
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,25 @@
+package com.sammdev.db.model;
+
+/**
+ * Columns needed to authenticate a customer, without the rest of the profile
+ */
+public class CustomerAuth {
+    private final int id;
+    private final String password;
+
+    public CustomerAuth(int id, String password) {
+        this.id = id;
+        this.password = password;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return stored password hash
+     */
+    public String getPassword() {
+        return password;
+    }
+}
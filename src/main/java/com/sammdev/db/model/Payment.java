@@ -1,11 +1,15 @@
 package com.sammdev.db.model;
 
+import java.time.LocalDateTime;
+
 public class Payment {
-    private String sender, receiver, time;
-    private int senderId, recieverId;
-    private double amount;
+    private String sender, receiver;
+    private LocalDateTime time;
+    private int paymentId, senderId, recieverId;
+    private long amount;
 
-    public Payment(int senderId, String sender, int recieverId, String receiver, double amount, String time) {
+    public Payment(int paymentId, int senderId, String sender, int recieverId, String receiver, long amount, LocalDateTime time) {
+        this.paymentId = paymentId;
         this.sender = sender;
         this.receiver = receiver;
         this.time = time;
@@ -14,6 +18,10 @@ public class Payment {
         this.amount = amount;
     }
 
+    public int getPaymentId() {
+        return paymentId;
+    }
+
     public String getSender() {
         return sender;
     }
@@ -22,7 +30,7 @@ public class Payment {
         return receiver;
     }
 
-    public String getTime() {
+    public LocalDateTime getTime() {
         return time;
     }
 
@@ -34,7 +42,10 @@ public class Payment {
         return recieverId;
     }
 
-    public double getAmount() {
+    /**
+     * @return amount in minor units
+     */
+    public long getAmount() {
         return amount;
     }
 }
@@ -0,0 +1,25 @@
+package com.sammdev.db.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Position in a payment history, pages continue with payments older than the last one seen.
+ * Payment id breaks ties between payments made in the same second.
+ */
+public class PaymentCursor {
+    private final LocalDateTime lastTime;
+    private final int lastPaymentId;
+
+    public PaymentCursor(LocalDateTime lastTime, int lastPaymentId) {
+        this.lastTime = lastTime;
+        this.lastPaymentId = lastPaymentId;
+    }
+
+    public LocalDateTime getLastTime() {
+        return lastTime;
+    }
+
+    public int getLastPaymentId() {
+        return lastPaymentId;
+    }
+}
@@ -0,0 +1,28 @@
+package com.sammdev.db.model;
+
+import java.util.List;
+
+public class PaymentPage {
+    private final List<Payment> payments;
+    private final PaymentCursor next;
+
+    public PaymentPage(List<Payment> payments, PaymentCursor next) {
+        this.payments = payments;
+        this.next = next;
+    }
+
+    public List<Payment> getPayments() {
+        return payments;
+    }
+
+    /**
+     * @return cursor of the following page, null if this is the last page
+     */
+    public PaymentCursor getNext() {
+        return next;
+    }
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
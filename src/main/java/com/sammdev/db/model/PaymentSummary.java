@@ -0,0 +1,48 @@
+package com.sammdev.db.model;
+
+import java.time.YearMonth;
+
+/**
+ * Sent and received totals of one customer in one calendar month
+ */
+public class PaymentSummary {
+    private final YearMonth month;
+    private final long sentTotal;
+    private final int sentCount;
+    private final long receivedTotal;
+    private final int receivedCount;
+
+    public PaymentSummary(YearMonth month, long sentTotal, int sentCount, long receivedTotal, int receivedCount) {
+        this.month = month;
+        this.sentTotal = sentTotal;
+        this.sentCount = sentCount;
+        this.receivedTotal = receivedTotal;
+        this.receivedCount = receivedCount;
+    }
+
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    /**
+     * @return sum of sent payments in minor units
+     */
+    public long getSentTotal() {
+        return sentTotal;
+    }
+
+    public int getSentCount() {
+        return sentCount;
+    }
+
+    /**
+     * @return sum of received payments in minor units
+     */
+    public long getReceivedTotal() {
+        return receivedTotal;
+    }
+
+    public int getReceivedCount() {
+        return receivedCount;
+    }
+}
@@ -0,0 +1,98 @@
+package com.sammdev.db.model;
+
+import com.sammdev.enums.TransferItemStatus;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Payment repeated every few months, on the day and time of its first execution
+ */
+public class StandingOrder {
+    private final int id;
+    private final int senderId;
+    private final int receiverId;
+    private final long amount;
+    private final int periodMonths;
+    private final LocalDateTime firstExecution;
+    private final LocalDateTime nextExecution;
+    private final LocalDateTime lastExecutedAt;
+    private final TransferItemStatus lastStatus;
+
+    public StandingOrder(int id, int senderId, int receiverId, long amount, int periodMonths,
+                         LocalDateTime firstExecution, LocalDateTime nextExecution,
+                         LocalDateTime lastExecutedAt, TransferItemStatus lastStatus) {
+        this.id = id;
+        this.senderId = senderId;
+        this.receiverId = receiverId;
+        this.amount = amount;
+        this.periodMonths = periodMonths;
+        this.firstExecution = firstExecution;
+        this.nextExecution = nextExecution;
+        this.lastExecutedAt = lastExecutedAt;
+        this.lastStatus = lastStatus;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getSenderId() {
+        return senderId;
+    }
+
+    public int getReceiverId() {
+        return receiverId;
+    }
+
+    /**
+     * @return amount in minor units
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    public int getPeriodMonths() {
+        return periodMonths;
+    }
+
+    public LocalDateTime getFirstExecution() {
+        return firstExecution;
+    }
+
+    public LocalDateTime getNextExecution() {
+        return nextExecution;
+    }
+
+    /**
+     * @return when the order was last executed, null if never
+     */
+    public LocalDateTime getLastExecutedAt() {
+        return lastExecutedAt;
+    }
+
+    /**
+     * @return outcome of the last execution, null if never executed
+     */
+    public TransferItemStatus getLastStatus() {
+        return lastStatus;
+    }
+
+    /**
+     * Executions are counted from the first one, so a payment on the 31st returns to the 31st after shorter months.
+     * Executions missed while no scheduler was running are skipped, not paid afterwards.
+     *
+     * @param time  usually now
+     * @return      first execution time after the given time
+     */
+    public LocalDateTime nextExecutionAfter(LocalDateTime time) {
+        long months = Math.max(0, ChronoUnit.MONTHS.between(firstExecution, time));
+        months -= months % periodMonths;
+        LocalDateTime next = firstExecution.plusMonths(months);
+        while (!next.isAfter(time)) {
+            months += periodMonths;
+            next = firstExecution.plusMonths(months);
+        }
+        return next;
+    }
+}
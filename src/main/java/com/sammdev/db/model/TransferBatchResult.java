@@ -0,0 +1,41 @@
+package com.sammdev.db.model;
+
+import com.sammdev.enums.TransferItemStatus;
+
+/**
+ * Per item outcome of a batch transfer, indexed like the submitted items
+ */
+public class TransferBatchResult {
+    private final TransferItemStatus[] statuses;
+    private final int[] paymentIds;
+
+    public TransferBatchResult(TransferItemStatus[] statuses, int[] paymentIds) {
+        this.statuses = statuses;
+        this.paymentIds = paymentIds;
+    }
+
+    public int size() {
+        return statuses.length;
+    }
+
+    public TransferItemStatus getStatus(int index) {
+        return statuses[index];
+    }
+
+    /**
+     * @return id of the recorded payment, 0 if the item was not completed
+     */
+    public int getPaymentId(int index) {
+        return paymentIds[index];
+    }
+
+    public int getCompleted() {
+        int completed = 0;
+        for (TransferItemStatus status : statuses) {
+            if (status == TransferItemStatus.COMPLETED) {
+                completed++;
+            }
+        }
+        return completed;
+    }
+}
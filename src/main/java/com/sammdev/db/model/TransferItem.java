@@ -0,0 +1,25 @@
+package com.sammdev.db.model;
+
+/**
+ * One payment of a batch transfer, the sender is shared by the whole batch
+ */
+public class TransferItem {
+    private final int receiverId;
+    private final long amount;
+
+    public TransferItem(int receiverId, long amount) {
+        this.receiverId = receiverId;
+        this.amount = amount;
+    }
+
+    public int getReceiverId() {
+        return receiverId;
+    }
+
+    /**
+     * @return amount in minor units
+     */
+    public long getAmount() {
+        return amount;
+    }
+}
@@ -0,0 +1,164 @@
+package com.sammdev.db.statement;
+
+import com.sammdev.metrics.LatencyHistogram;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Query declared once in the StatementRegistry.
+ * Statements prepared from it record every execution: latency until the server answered,
+ * and rows read from the result or changed by an update.
+ */
+public class NamedStatement {
+
+    // replaced by the placeholders of an IN list
+    private static final String IN_LIST = "(%s)";
+
+    private final String name;
+    private final String sql;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong rows = new AtomicLong();
+
+    NamedStatement(String name, String sql) {
+        this.name = name;
+        this.sql = sql;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Prepares the statement, the driver keeps it cached per connection
+     *
+     * @param connection    connection to prepare on
+     * @return              statement recording its executions, close it as usual
+     * @throws SQLException if preparing fails
+     */
+    public PreparedStatement prepare(Connection connection) throws SQLException {
+        return timed(connection.prepareStatement(sql));
+    }
+
+    /**
+     * Prepares a statement with an IN list as its only parameters, "(%s)" in the declared SQL
+     * is replaced by the placeholders. Lists are padded to a power of two by repeating the last value,
+     * so a few statement texts cover all list sizes.
+     *
+     * @param connection    connection to prepare on
+     * @param values        values of the IN list, not empty
+     * @return              statement with all parameters set, recording its executions
+     * @throws SQLException if preparing fails
+     */
+    public PreparedStatement prepare(Connection connection, List<?> values) throws SQLException {
+        int size = Integer.highestOneBit(values.size());
+        if (size < values.size()) {
+            size <<= 1;
+        }
+        String placeholders = String.join(",", Collections.nCopies(size, "?"));
+        PreparedStatement statement = timed(connection.prepareStatement(sql.replace(IN_LIST, "(" + placeholders + ")")));
+        try {
+            for (int i = 0; i < size; i++) {
+                statement.setObject(i + 1, values.get(Math.min(i, values.size() - 1)));
+            }
+        } catch (SQLException | RuntimeException e) {
+            statement.close();
+            throw e;
+        }
+        return statement;
+    }
+
+    /**
+     * @return executions, latency and rows recorded since start
+     */
+    public StatementStats getStats() {
+        return new StatementStats(name, latency.snapshot(), rows.get());
+    }
+
+    private PreparedStatement timed(PreparedStatement statement) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new TimingHandler(statement)
+        );
+    }
+
+    /**
+     * Measures execute calls of a prepared statement and counts the rows of its results
+     */
+    private class TimingHandler implements InvocationHandler {
+        private final PreparedStatement statement;
+
+        private TimingHandler(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            boolean execution = method.getName().startsWith("execute") && (args == null || args.length == 0);
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                if (execution) {
+                    latency.record(System.nanoTime() - start);
+                }
+                throw e.getCause();
+            }
+            if (execution) {
+                latency.record(System.nanoTime() - start);
+                countChanged(result);
+            }
+            if (result instanceof ResultSet) {
+                return counted((ResultSet) result);
+            }
+            return result;
+        }
+
+        private void countChanged(Object result) {
+            if (result instanceof Integer || result instanceof Long) {
+                rows.addAndGet(((Number) result).longValue());
+            } else if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    rows.addAndGet(Math.max(0, count));
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    rows.addAndGet(Math.max(0, count));
+                }
+            }
+        }
+
+        private ResultSet counted(ResultSet resultSet) {
+            return (ResultSet) Proxy.newProxyInstance(
+                    ResultSet.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        try {
+                            Object result = method.invoke(resultSet, args);
+                            if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                                rows.incrementAndGet();
+                            }
+                            return result;
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+            );
+        }
+    }
+}
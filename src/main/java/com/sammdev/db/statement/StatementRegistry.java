@@ -0,0 +1,58 @@
+package com.sammdev.db.statement;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Every query of the DAOs, declared once by name.
+ * The same SQL text is always sent for a name, so the server side statement cache of the driver
+ * (useServerPrepStmts, cachePrepStmts in db.url) prepares it once per connection.
+ */
+public class StatementRegistry {
+
+    private static final StatementRegistry instance = new StatementRegistry();
+
+    private final Map<String, NamedStatement> statements = new ConcurrentHashMap<>();
+
+    private StatementRegistry() {
+        // hide constructor, singleton pattern
+    }
+
+    public static StatementRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Declares a query, meant for static fields of the DAOs
+     *
+     * @param name  unique name, "table.operation"
+     * @param sql   SQL with ? parameters, "(%s)" marks an IN list
+     * @return      statement to prepare the query with
+     * @throws IllegalStateException if the name is declared with a different SQL already
+     */
+    public NamedStatement declare(String name, String sql) {
+        NamedStatement statement = statements.computeIfAbsent(name, n -> new NamedStatement(n, sql));
+        if (!statement.getSql().equals(sql)) {
+            throw new IllegalStateException("Statement " + name + " is declared twice with different SQL");
+        }
+        return statement;
+    }
+
+    /**
+     * @return statistics of all executed statements, most total time first
+     */
+    public List<StatementStats> getStats() {
+        List<StatementStats> stats = new ArrayList<>();
+        for (NamedStatement statement : statements.values()) {
+            StatementStats snapshot = statement.getStats();
+            if (snapshot.getExecutions() > 0) {
+                stats.add(snapshot);
+            }
+        }
+        stats.sort(Comparator.comparingDouble(StatementStats::getTotalMillis).reversed());
+        return stats;
+    }
+}
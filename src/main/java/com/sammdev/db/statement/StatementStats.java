@@ -0,0 +1,52 @@
+package com.sammdev.db.statement;
+
+import com.sammdev.metrics.LatencyHistogram;
+
+/**
+ * Snapshot of the executions of one named statement
+ */
+public class StatementStats {
+    private final String name;
+    private final LatencyHistogram latency;
+    private final long rows;
+
+    public StatementStats(String name, LatencyHistogram latency, long rows) {
+        this.name = name;
+        this.latency = latency;
+        this.rows = rows;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getExecutions() {
+        return latency.getCount();
+    }
+
+    /**
+     * @return latency of executions, until the server answered
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return rows read from results plus rows changed by updates
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return time spent in all executions
+     */
+    public double getTotalMillis() {
+        return latency.getMeanMillis() * latency.getCount();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: rows=%d, total=%.1f ms, %s", name, rows, getTotalMillis(), latency);
+    }
+}
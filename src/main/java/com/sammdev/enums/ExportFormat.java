@@ -0,0 +1,9 @@
+package com.sammdev.enums;
+
+/**
+ * File formats of the payment export
+ */
+public enum ExportFormat {
+    CSV,
+    BINARY
+}
@@ -1,17 +1,20 @@
 package com.sammdev.enums;
 
+import java.util.regex.Pattern;
+
 public enum InputType {
     NAME("(?i)(^[a-z])((?![ .,'-]$)[a-z .,'-]){0,24}$"),
     EMAIL("^[\\w-_\\.+]*[\\w-_\\.]\\@([\\w]+\\.)+[\\w]+[\\w]$"),
     PASSWORD("^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=])(?=\\S+$).{8,}$");
 
-    String validationRegex;
+    // compiled once, String.matches would compile the regex on every call
+    private final Pattern validationPattern;
 
     InputType(String validationRegex) {
-        this.validationRegex = validationRegex;
+        this.validationPattern = Pattern.compile(validationRegex);
     }
 
     public boolean isValid(String str) {
-        return str.matches(validationRegex);
+        return validationPattern.matcher(str).matches();
     }
 }
@@ -0,0 +1,24 @@
+package com.sammdev.enums;
+
+/**
+ * Screens of the console session, every screen handler returns the screen to show next
+ */
+public enum Screen {
+    MAIN_MENU,
+    REGISTRATION,
+    LOG_IN,
+    CUSTOMER_MENU,
+    BALANCE,
+    WITHDRAW,
+    DEPOSIT,
+    PAYMENT,
+    PAYMENT_HISTORY,
+    PAYMENT_SUMMARY,
+    STANDING_ORDERS,
+    NEW_STANDING_ORDER,
+    CANCEL_STANDING_ORDER,
+    ACCOUNT_INFO,
+    PASSWORD_CHANGE,
+    OPERATOR_STATS,
+    EXIT
+}
@@ -0,0 +1,13 @@
+package com.sammdev.enums;
+
+/**
+ * Outcome of one item of a batch transfer
+ */
+public enum TransferItemStatus {
+    COMPLETED,
+    INVALID_AMOUNT,
+    OWN_ACCOUNT,
+    UNKNOWN_RECEIVER,
+    NOT_ENOUGH_MONEY,
+    FAILED
+}
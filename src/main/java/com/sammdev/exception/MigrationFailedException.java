@@ -0,0 +1,7 @@
+package com.sammdev.exception;
+
+public class MigrationFailedException extends RuntimeException {
+    public MigrationFailedException(String message) {
+        super(message);
+    }
+}
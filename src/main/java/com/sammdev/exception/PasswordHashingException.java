@@ -0,0 +1,7 @@
+package com.sammdev.exception;
+
+public class PasswordHashingException extends RuntimeException {
+    public PasswordHashingException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,44 @@
+package com.sammdev.exporter;
+
+import com.sammdev.enums.ExportFormat;
+
+/**
+ * Settings of a payment export, read from system properties
+ */
+public class ExportConfig {
+
+    private final ExportFormat format;
+    private final boolean gzip;
+    private final int bufferSize;
+
+    public ExportConfig(ExportFormat format, boolean gzip, int bufferSize) {
+        this.format = format;
+        this.gzip = gzip;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * -Dexport.format=csv          csv or binary
+     * -Dexport.gzip=false          compress the file with gzip
+     * -Dexport.bufferSize=65536    bytes encoded before they are written to the file, the only memory that grows with rows
+     */
+    public static ExportConfig fromSystemProperties() {
+        return new ExportConfig(
+                ExportFormat.valueOf(System.getProperty("export.format", "csv").toUpperCase()),
+                Boolean.getBoolean("export.gzip"),
+                Integer.getInteger("export.bufferSize", 64 * 1024)
+        );
+    }
+
+    public ExportFormat getFormat() {
+        return format;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+}
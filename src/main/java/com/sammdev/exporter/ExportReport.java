@@ -0,0 +1,43 @@
+package com.sammdev.exporter;
+
+import java.nio.file.Path;
+
+/**
+ * Result of a payment export
+ */
+public class ExportReport {
+    private final long exported, bytes, elapsedNanos;
+    private final Path output;
+
+    public ExportReport(long exported, long bytes, long elapsedNanos, Path output) {
+        this.exported = exported;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+        this.output = output;
+    }
+
+    public long getExported() {
+        return exported;
+    }
+
+    /**
+     * @return size of the written file
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public Path getOutput() {
+        return output;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : exported * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Exported " + exported + " payments (" + bytes + " bytes) to " + output + " in "
+                + elapsedNanos / 1_000_000 + " ms (" + Math.round(getRowsPerSecond()) + " rows/s)";
+    }
+}
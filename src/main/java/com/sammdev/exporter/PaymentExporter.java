@@ -0,0 +1,227 @@
+package com.sammdev.exporter;
+
+import com.sammdev.db.dao.PaymentDao;
+import com.sammdev.db.model.Payment;
+import com.sammdev.enums.ExportFormat;
+import com.sammdev.money.Money;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports stored payments of one customer or of the whole bank to a file.
+ *
+ * Rows are streamed from the database and encoded straight into one reused buffer, which is written
+ * to a file channel whenever it fills up, so memory use does not depend on the number of payments.
+ *
+ * CSV: header payment_id,sender_id,receiver_id,amount,created_at, amounts like "12.34",
+ * times like "2024-01-31 23:59:59".
+ * Binary: "PAYX" and a version byte, then one big-endian record of 28 bytes per payment:
+ * int payment_id, int sender_id, int receiver_id, long amount in minor units, long created_at in UTC epoch seconds.
+ */
+public class PaymentExporter {
+
+    private static final byte[] CSV_HEADER =
+            "payment_id,sender_id,receiver_id,amount,created_at\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BINARY_MAGIC = {'P', 'A', 'Y', 'X'};
+    private static final byte BINARY_VERSION = 1;
+
+    // longest encoded payment, a CSV line with the largest ids and amount
+    private static final int MAX_RECORD_BYTES = 96;
+
+    private final PaymentDao paymentDao = PaymentDao.getInstance();
+
+    /**
+     * Exports all payments sent or received by a customer, oldest first
+     *
+     * @param output        file to write, replaced if it exists
+     * @param customerId    sender or receiver of the payments
+     * @param config        format, compression and buffer size
+     * @return              number of exported payments and size of the file
+     * @throws IOException  if the file can not be written
+     */
+    public ExportReport exportCustomer(Path output, int customerId, ExportConfig config) throws IOException {
+        return export(output, config, consumer -> paymentDao.forEachPaymentOf(customerId, consumer));
+    }
+
+    /**
+     * Exports all payments of the bank in id order
+     *
+     * @param output        file to write, replaced if it exists
+     * @param config        format, compression and buffer size
+     * @return              number of exported payments and size of the file
+     * @throws IOException  if the file can not be written
+     */
+    public ExportReport exportAll(Path output, ExportConfig config) throws IOException {
+        return export(output, config, paymentDao::forEachPayment);
+    }
+
+    private ExportReport export(Path output, ExportConfig config, Consumer<Consumer<Payment>> payments) throws IOException {
+        long start = System.nanoTime();
+        long[] exported = {0};
+        try (Output out = new Output(open(output, config), Math.max(config.getBufferSize(), MAX_RECORD_BYTES))) {
+            boolean csv = config.getFormat() == ExportFormat.CSV;
+            if (csv) {
+                out.put(CSV_HEADER);
+            } else {
+                out.put(BINARY_MAGIC);
+                out.buffer.put(BINARY_VERSION);
+            }
+            try {
+                payments.accept(payment -> {
+                    try {
+                        out.ensureRoom(MAX_RECORD_BYTES);
+                        if (csv) {
+                            writeCsv(out, payment);
+                        } else {
+                            writeBinary(out.buffer, payment);
+                        }
+                        exported[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return new ExportReport(exported[0], Files.size(output), System.nanoTime() - start, output);
+    }
+
+    private WritableByteChannel open(Path output, ExportConfig config) throws IOException {
+        FileChannel file = FileChannel.open(output,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        if (!config.isGzip()) {
+            return file;
+        }
+        try {
+            return Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(file), config.getBufferSize()));
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private void writeCsv(Output out, Payment payment) {
+        out.putNumber(payment.getPaymentId());
+        out.putChar(',');
+        out.putNumber(payment.getSenderId());
+        out.putChar(',');
+        out.putNumber(payment.getRecieverId());
+        out.putChar(',');
+        long amount = payment.getAmount();
+        if (amount < 0) {
+            out.putChar('-');
+        }
+        out.putNumber(Math.abs(amount / Money.MINOR_UNITS));
+        out.putChar('.');
+        out.putPadded(Math.abs(amount % Money.MINOR_UNITS), Money.SCALE);
+        out.putChar(',');
+        LocalDateTime time = payment.getTime();
+        out.putPadded(time.getYear(), 4);
+        out.putChar('-');
+        out.putPadded(time.getMonthValue(), 2);
+        out.putChar('-');
+        out.putPadded(time.getDayOfMonth(), 2);
+        out.putChar(' ');
+        out.putPadded(time.getHour(), 2);
+        out.putChar(':');
+        out.putPadded(time.getMinute(), 2);
+        out.putChar(':');
+        out.putPadded(time.getSecond(), 2);
+        out.putChar('\n');
+    }
+
+    private void writeBinary(ByteBuffer buffer, Payment payment) {
+        buffer.putInt(payment.getPaymentId());
+        buffer.putInt(payment.getSenderId());
+        buffer.putInt(payment.getRecieverId());
+        buffer.putLong(payment.getAmount());
+        buffer.putLong(payment.getTime().toEpochSecond(ZoneOffset.UTC));
+    }
+
+    /**
+     * Buffer in front of a channel, numbers are encoded as ASCII digits without creating strings
+     */
+    private static class Output implements Closeable {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer;
+        private final byte[] digits = new byte[20];
+
+        private Output(WritableByteChannel channel, int bufferSize) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(bufferSize);
+        }
+
+        private void ensureRoom(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void put(byte[] bytes) throws IOException {
+            ensureRoom(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void putChar(char c) {
+            buffer.put((byte) c);
+        }
+
+        /**
+         * @param value not negative
+         */
+        private void putNumber(long value) {
+            int length = 0;
+            do {
+                digits[length++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            while (length > 0) {
+                buffer.put(digits[--length]);
+            }
+        }
+
+        /**
+         * @param value not negative, written with leading zeros to at least width digits
+         */
+        private void putPadded(long value, int width) {
+            for (long limit = 10; width > 1; width--, limit *= 10) {
+                if (value < limit) {
+                    buffer.put((byte) '0');
+                }
+            }
+            putNumber(value);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
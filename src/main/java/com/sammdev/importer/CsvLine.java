@@ -0,0 +1,62 @@
+package com.sammdev.importer;
+
+import com.sammdev.exception.IncorrectInputFormatException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits one line of comma separated values.
+ * Fields may be quoted to contain commas, a quote inside a quoted field is written twice.
+ */
+public final class CsvLine {
+
+    private CsvLine() {
+    }
+
+    /**
+     * @param line  line without the line terminator
+     * @return      unquoted fields
+     * @throws IncorrectInputFormatException if a quoted field is not closed on the same line
+     */
+    public static List<String> split(String line) throws IncorrectInputFormatException {
+        List<String> fields = new ArrayList<>(8);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IncorrectInputFormatException("Unclosed quote");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * @return value quoted when it contains a comma, quote or line break
+     */
+    public static String quote(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
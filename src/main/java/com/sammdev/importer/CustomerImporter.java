@@ -0,0 +1,345 @@
+package com.sammdev.importer;
+
+import com.sammdev.db.cache.EmailIndex;
+import com.sammdev.db.connection.ConnectionProvider;
+import com.sammdev.db.dao.BulkInsert;
+import com.sammdev.db.dao.CustomerDao;
+import com.sammdev.db.dao.IdAllocator;
+import com.sammdev.enums.InputType;
+import com.sammdev.exception.IncorrectInputFormatException;
+import com.sammdev.exception.PasswordHashingException;
+import com.sammdev.money.Money;
+import com.sammdev.security.PasswordHashing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports customers with their opening balances from a CSV file.
+ *
+ * The file is read as a stream and cut into batches, batches are validated and written in parallel,
+ * each one in its own transaction. Only a bounded number of batches is held in memory, when all
+ * writers are busy the reading thread writes a batch itself. Rows that can not be imported are
+ * written with the reason to an error report next to the input file.
+ *
+ * Expected columns: first_name,last_name,address,email,balance[,password]
+ * The balance is an amount like "12.34". Without a password the customer can not log in,
+ * rows with a password are much slower to import because every password is hashed.
+ */
+public class CustomerImporter {
+
+    private static final String HEADER = "first_name,last_name,address,email,balance";
+    private static final String[] CUSTOMER_COLUMNS = {"id", "first_name", "last_name", "address", "email", "password"};
+    private static final String[] BALANCE_COLUMNS = {"id", "balance", "version"};
+
+    private static final int ROWS_PER_STATEMENT = 500;
+    private static final int STATEMENTS_PER_BATCH = 4;
+    private static final int MAX_ADDRESS_LENGTH = 150;
+    private static final int MAX_EMAIL_LENGTH = 100;
+
+    // two batches with the same new email race on the unique index, the loser re-checks its emails and tries again
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    private final ConnectionProvider connectionProvider = ConnectionProvider.getInstance();
+    private final CustomerDao customerDao = CustomerDao.getInstance();
+    private final EmailIndex emailIndex = EmailIndex.getInstance();
+    private final PasswordHashing passwordHashing = PasswordHashing.getInstance();
+
+    private final AtomicLong imported = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Imports the file and waits until every batch is written or rejected
+     *
+     * @param input     CSV file with a header line
+     * @param config    parallelism and batch size
+     * @return          imported and rejected row counts, rejected rows are listed in the error report
+     * @throws IOException                      if the input can not be read or the error report written
+     * @throws IncorrectInputFormatException    if the header does not match the expected columns
+     */
+    public ImportReport importFile(Path input, ImportConfig config) throws IOException, IncorrectInputFormatException {
+        long start = System.nanoTime();
+        Path errorPath = input.resolveSibling(input.getFileName() + ".errors.csv");
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                config.getThreads(), config.getThreads(),
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getQueuedBatches())),
+                runnable -> new Thread(runnable, "customer-import-" + threadNumber.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             ErrorReport errors = new ErrorReport(errorPath)) {
+            String header = reader.readLine();
+            if (header == null || !header.trim().toLowerCase().startsWith(HEADER)) {
+                throw new IncorrectInputFormatException("Expected header " + HEADER + "[,password]");
+            }
+
+            try {
+                long lineNumber = 1;
+                List<String> lines = new ArrayList<>(config.getBatchSize());
+                long batchFirstLine = lineNumber + 1;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    lines.add(line);
+                    if (lines.size() == config.getBatchSize()) {
+                        submit(executor, batchFirstLine, lines, errors);
+                        lines = new ArrayList<>(config.getBatchSize());
+                        batchFirstLine = lineNumber + 1;
+                    }
+                }
+                if (!lines.isEmpty()) {
+                    submit(executor, batchFirstLine, lines, errors);
+                }
+            } finally {
+                executor.shutdown();
+                awaitTermination(executor);
+            }
+        }
+
+        return new ImportReport(imported.get(), rejected.get(), System.nanoTime() - start, errorPath);
+    }
+
+    private void submit(ThreadPoolExecutor executor, long firstLine, List<String> lines, ErrorReport errors) {
+        executor.execute(() -> importBatch(firstLine, lines, errors));
+    }
+
+    private void awaitTermination(ThreadPoolExecutor executor) throws IOException {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.out.println("Import in progress, " + imported.get() + " customers imported");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("Import was interrupted");
+        }
+    }
+
+    private void importBatch(long firstLine, List<String> lines, ErrorReport errors) {
+        List<ImportRow> rows = new ArrayList<>(lines.size());
+        Set<String> batchEmails = new HashSet<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                ImportRow row = parse(firstLine + i, line);
+                if (batchEmails.add(row.email)) {
+                    rows.add(row);
+                } else {
+                    reject(errors, row, "Email is repeated in the file");
+                }
+            } catch (IncorrectInputFormatException e) {
+                reject(errors, new ImportRow(firstLine + i, line), e.getMessage());
+            }
+        }
+
+        try {
+            for (int attempt = 1; ; attempt++) {
+                rejectRegistered(rows, errors);
+                hashPasswords(rows, errors);
+                if (rows.isEmpty()) {
+                    return;
+                }
+                try {
+                    write(rows);
+                    imported.addAndGet(rows.size());
+                    rows.forEach(row -> emailIndex.add(row.email));
+                    return;
+                } catch (SQLException e) {
+                    if (!isDuplicateKey(e) || attempt == MAX_WRITE_ATTEMPTS) {
+                        throw e;
+                    }
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println(e);
+            rows.forEach(row -> reject(errors, row, "Failed to write to database"));
+        }
+    }
+
+    private ImportRow parse(long lineNumber, String line) throws IncorrectInputFormatException {
+        List<String> fields = CsvLine.split(line);
+        if (fields.size() != 5 && fields.size() != 6) {
+            throw new IncorrectInputFormatException("Expected 5 or 6 fields, found " + fields.size());
+        }
+
+        ImportRow row = new ImportRow(lineNumber, line);
+        row.firstName = fields.get(0).trim();
+        row.lastName = fields.get(1).trim();
+        row.address = fields.get(2).trim();
+        // the unique index compares emails case-insensitively, so must the duplicate checks of the import
+        row.email = fields.get(3).trim().toLowerCase(Locale.ROOT);
+        if (!InputType.NAME.isValid(row.firstName)) {
+            throw new IncorrectInputFormatException("Incorrect first name");
+        }
+        if (!InputType.NAME.isValid(row.lastName)) {
+            throw new IncorrectInputFormatException("Incorrect last name");
+        }
+        if (row.address.length() > MAX_ADDRESS_LENGTH) {
+            throw new IncorrectInputFormatException("Address is longer than " + MAX_ADDRESS_LENGTH + " characters");
+        }
+        if (row.email.length() > MAX_EMAIL_LENGTH || !InputType.EMAIL.isValid(row.email)) {
+            throw new IncorrectInputFormatException("Incorrect email");
+        }
+
+        row.balance = Money.parse(fields.get(4).trim());
+        if (row.balance < 0) {
+            throw new IncorrectInputFormatException("Opening balance can not be negative");
+        }
+
+        if (fields.size() == 6 && !fields.get(5).isEmpty()) {
+            if (!InputType.PASSWORD.isValid(fields.get(5))) {
+                throw new IncorrectInputFormatException("Password does not meet the password rules");
+            }
+            row.password = fields.get(5);
+        }
+        return row;
+    }
+
+    private void rejectRegistered(List<ImportRow> rows, ErrorReport errors) {
+        List<String> emails = new ArrayList<>(rows.size());
+        rows.forEach(row -> emails.add(row.email));
+        Set<String> registered = new HashSet<>();
+        // stored in the spelling they were registered with
+        customerDao.findExistingEmails(emails).forEach(email -> registered.add(email.toLowerCase(Locale.ROOT)));
+        if (registered.isEmpty()) {
+            return;
+        }
+        for (Iterator<ImportRow> iterator = rows.iterator(); iterator.hasNext(); ) {
+            ImportRow row = iterator.next();
+            if (registered.contains(row.email)) {
+                reject(errors, row, "Email is already registered");
+                iterator.remove();
+            }
+        }
+    }
+
+    private void hashPasswords(List<ImportRow> rows, ErrorReport errors) {
+        for (Iterator<ImportRow> iterator = rows.iterator(); iterator.hasNext(); ) {
+            ImportRow row = iterator.next();
+            if (row.password != null && row.passwordHash == null) {
+                try {
+                    row.passwordHash = passwordHashing.hash(row.password);
+                } catch (PasswordHashingException e) {
+                    reject(errors, row, e.getMessage());
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private void write(List<ImportRow> rows) throws SQLException {
+        int firstId = IdAllocator.customers().reserveRange(rows.size());
+        try (Connection connection = connectionProvider.getConnection()) {
+            connection.setAutoCommit(false);
+            try (BulkInsert customers = new BulkInsert(connection, "customers", CUSTOMER_COLUMNS, ROWS_PER_STATEMENT, STATEMENTS_PER_BATCH);
+                 BulkInsert balances = new BulkInsert(connection, "balance", BALANCE_COLUMNS, ROWS_PER_STATEMENT, STATEMENTS_PER_BATCH)) {
+                int id = firstId;
+                for (ImportRow row : rows) {
+                    customers.addRow(id, row.firstName, row.lastName, row.address, row.email, row.passwordHash);
+                    balances.addRow(id, row.balance, 0L);
+                    id++;
+                }
+                customers.flush();
+                balances.flush();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Integrity constraint violations have SQLState class 23, batch errors may carry it in a nested exception
+     */
+    private boolean isDuplicateKey(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                SQLException sqlException = (SQLException) cause;
+                if (sqlException.getSQLState() != null && sqlException.getSQLState().startsWith("23")) {
+                    return true;
+                }
+                if (sqlException.getNextException() != null && isDuplicateKey(sqlException.getNextException())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void reject(ErrorReport errors, ImportRow row, String reason) {
+        rejected.incrementAndGet();
+        try {
+            errors.write(row.lineNumber, reason, row.line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * One customer of the input file, filled in while it is validated
+     */
+    private static class ImportRow {
+        private final long lineNumber;
+        private final String line;
+        private String firstName, lastName, address, email, password, passwordHash;
+        private long balance;
+
+        private ImportRow(long lineNumber, String line) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+        }
+    }
+
+    /**
+     * Rejected rows with line number and reason, shared by all import threads
+     */
+    private static class ErrorReport implements Closeable {
+        private final BufferedWriter writer;
+
+        private ErrorReport(Path path) throws IOException {
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            writer.write("line,reason,row");
+            writer.newLine();
+        }
+
+        private synchronized void write(long lineNumber, String reason, String line) throws IOException {
+            writer.write(Long.toString(lineNumber));
+            writer.write(',');
+            writer.write(CsvLine.quote(reason));
+            writer.write(',');
+            writer.write(CsvLine.quote(line));
+            writer.newLine();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            writer.close();
+        }
+    }
+}
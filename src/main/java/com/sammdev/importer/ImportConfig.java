@@ -0,0 +1,43 @@
+package com.sammdev.importer;
+
+/**
+ * Settings of a customer import, read from system properties
+ */
+public class ImportConfig {
+
+    private final int threads;
+    private final int batchSize;
+    private final int queuedBatches;
+
+    public ImportConfig(int threads, int batchSize, int queuedBatches) {
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.queuedBatches = queuedBatches;
+    }
+
+    /**
+     * -Dimport.threads=cores               batches validated and written in parallel
+     * -Dimport.batchSize=2000              rows validated and written in one transaction
+     * -Dimport.queuedBatches=threads*2     batches read ahead of the writers, bounds memory use
+     */
+    public static ImportConfig fromSystemProperties() {
+        int threads = Integer.getInteger("import.threads", Runtime.getRuntime().availableProcessors());
+        return new ImportConfig(
+                threads,
+                Integer.getInteger("import.batchSize", 2_000),
+                Integer.getInteger("import.queuedBatches", threads * 2)
+        );
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getQueuedBatches() {
+        return queuedBatches;
+    }
+}
@@ -0,0 +1,41 @@
+package com.sammdev.importer;
+
+import java.nio.file.Path;
+
+/**
+ * Result of a customer import
+ */
+public class ImportReport {
+    private final long imported, rejected, elapsedNanos;
+    private final Path errorReport;
+
+    public ImportReport(long imported, long rejected, long elapsedNanos, Path errorReport) {
+        this.imported = imported;
+        this.rejected = rejected;
+        this.elapsedNanos = elapsedNanos;
+        this.errorReport = errorReport;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public Path getErrorReport() {
+        return errorReport;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : (imported + rejected) * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Imported " + imported + " customers, rejected " + rejected + " rows in "
+                + elapsedNanos / 1_000_000 + " ms (" + Math.round(getRowsPerSecond()) + " rows/s)"
+                + (rejected > 0 ? ", see " + errorReport : "");
+    }
+}
@@ -0,0 +1,390 @@
+package com.sammdev.ledger;
+
+import com.sammdev.db.dao.BalanceDao;
+import com.sammdev.db.model.Balance;
+import com.sammdev.exception.NotEnoughMoneyException;
+import com.sammdev.exception.RecordNotFoundException;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.sammdev.ledger.LedgerConfig.LEDGER_CHECKPOINT_BATCH_SIZE;
+import static com.sammdev.ledger.LedgerConfig.LEDGER_CHECKPOINT_INTERVAL_MS;
+import static com.sammdev.ledger.LedgerConfig.LEDGER_STRIPES;
+
+/**
+ * Keeps all balances in memory and changes them there, the balance table is written
+ * in the background with the balances changed since the last checkpoint.
+ *
+ * Balances live in pages of primitive longs indexed by account id, so a lookup is two array reads.
+ * Every account belongs to one of a fixed number of lock stripes, operations hold the stripes of
+ * their accounts, a transfer takes its two stripes in ascending order so transfers never deadlock.
+ * Accounts are loaded from the balance table at start, accounts created later on first use.
+ */
+public class Ledger {
+
+    private static final Ledger instance = new Ledger();
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    // balances are never negative, so this marks an account that is not loaded
+    private static final long NO_ACCOUNT = Long.MIN_VALUE;
+
+    private final BalanceDao balanceDao = BalanceDao.getInstance();
+
+    private final AtomicReferenceArray<Page> pages = new AtomicReferenceArray<>((Integer.MAX_VALUE >>> PAGE_BITS) + 1);
+    private final AtomicInteger highestPage = new AtomicInteger(-1);
+    private final ReentrantLock[] stripes = new ReentrantLock[LEDGER_STRIPES];
+
+    private final AtomicLong accounts = new AtomicLong();
+    private final AtomicLong operations = new AtomicLong();
+    private final AtomicLong contendedLocks = new AtomicLong();
+    private final AtomicLong totalLockWaitNanos = new AtomicLong();
+    private final AtomicLong dirtyAccounts = new AtomicLong();
+    private final AtomicLong checkpointedBalances = new AtomicLong();
+    private final AtomicLong failedCheckpoints = new AtomicLong();
+    private volatile long lastCheckpointAt = System.nanoTime();
+
+    private final Object checkpointLock = new Object();
+    private ScheduledExecutorService checkpointer;
+
+    private Ledger() {
+        // hide constructor, singleton pattern
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public static Ledger getInstance() {
+        return instance;
+    }
+
+    /**
+     * Loads all balances and starts the periodic checkpoints
+     */
+    public synchronized void start() {
+        if (checkpointer != null) {
+            return;
+        }
+        long started = System.nanoTime();
+        balanceDao.forEachBalance(balance -> open(balance.getId(), balance.getAmount()));
+        System.out.println("Ledger loaded " + accounts.get() + " balances in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms");
+
+        checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointer.scheduleWithFixedDelay(this::checkpoint,
+                LEDGER_CHECKPOINT_INTERVAL_MS, LEDGER_CHECKPOINT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic checkpoints and writes all remaining changes
+     */
+    public synchronized void shutdown() {
+        if (checkpointer == null) {
+            return;
+        }
+        checkpointer.shutdown();
+        try {
+            checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkpoint();
+        checkpointer = null;
+    }
+
+    /**
+     * @param id    account id
+     * @return      balance in minor units
+     * @throws RecordNotFoundException if there is no such account
+     */
+    public long getBalance(int id) throws RecordNotFoundException {
+        while (true) {
+            Page page = page(id);
+            ReentrantLock lock = lock(id);
+            try {
+                long balance = page.balances[id & PAGE_MASK];
+                if (balance != NO_ACCOUNT) {
+                    return balance;
+                }
+            } finally {
+                lock.unlock();
+            }
+            load(id);
+        }
+    }
+
+    /**
+     * @param id        account id
+     * @param amount    amount in minor units, positive
+     * @throws RecordNotFoundException if there is no such account
+     */
+    public void deposit(int id, long amount) throws RecordNotFoundException {
+        while (true) {
+            Page page = page(id);
+            int slot = id & PAGE_MASK;
+            ReentrantLock lock = lock(id);
+            try {
+                if (page.balances[slot] != NO_ACCOUNT) {
+                    page.balances[slot] = Math.addExact(page.balances[slot], amount);
+                    markDirty(page, slot);
+                    operations.incrementAndGet();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            load(id);
+        }
+    }
+
+    /**
+     * @param id        account id
+     * @param amount    amount in minor units, positive
+     * @throws RecordNotFoundException if there is no such account
+     * @throws NotEnoughMoneyException if the balance is lower than amount
+     */
+    public void withdraw(int id, long amount) throws RecordNotFoundException, NotEnoughMoneyException {
+        while (true) {
+            Page page = page(id);
+            int slot = id & PAGE_MASK;
+            ReentrantLock lock = lock(id);
+            try {
+                if (page.balances[slot] != NO_ACCOUNT) {
+                    if (amount > page.balances[slot]) {
+                        throw new NotEnoughMoneyException("Customer does not have enough money!");
+                    }
+                    page.balances[slot] -= amount;
+                    markDirty(page, slot);
+                    operations.incrementAndGet();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            load(id);
+        }
+    }
+
+    /**
+     * @param senderId      who sends money
+     * @param receiverId    who receives money, different from sender
+     * @param amount        amount in minor units, positive
+     * @throws RecordNotFoundException if either account does not exist
+     * @throws NotEnoughMoneyException if sender's balance is lower than amount
+     */
+    public void transfer(int senderId, int receiverId, long amount)
+            throws RecordNotFoundException, NotEnoughMoneyException {
+        if (senderId == receiverId) {
+            throw new IllegalArgumentException("Sender and receiver must be different accounts");
+        }
+        int senderStripe = stripeOf(senderId);
+        int receiverStripe = stripeOf(receiverId);
+        int firstStripe = Math.min(senderStripe, receiverStripe);
+        int secondStripe = Math.max(senderStripe, receiverStripe);
+
+        while (true) {
+            Page senderPage = page(senderId);
+            Page receiverPage = page(receiverId);
+            int senderSlot = senderId & PAGE_MASK;
+            int receiverSlot = receiverId & PAGE_MASK;
+            int missing;
+
+            ReentrantLock first = lockStripe(firstStripe);
+            ReentrantLock second = secondStripe == firstStripe ? null : lockStripe(secondStripe);
+            try {
+                long senderBalance = senderPage.balances[senderSlot];
+                long receiverBalance = receiverPage.balances[receiverSlot];
+                if (senderBalance != NO_ACCOUNT && receiverBalance != NO_ACCOUNT) {
+                    if (amount > senderBalance) {
+                        throw new NotEnoughMoneyException("You don't have enough money to transfer!");
+                    }
+                    long credited = Math.addExact(receiverBalance, amount);
+                    senderPage.balances[senderSlot] = senderBalance - amount;
+                    receiverPage.balances[receiverSlot] = credited;
+                    markDirty(senderPage, senderSlot);
+                    markDirty(receiverPage, receiverSlot);
+                    operations.incrementAndGet();
+                    return;
+                }
+                missing = senderBalance == NO_ACCOUNT ? senderId : receiverId;
+            } finally {
+                if (second != null) {
+                    second.unlock();
+                }
+                first.unlock();
+            }
+            load(missing);
+        }
+    }
+
+    /**
+     * Writes balances changed since the last checkpoint to the balance table.
+     * Balances of a failed batch stay dirty and are written by the next checkpoint.
+     */
+    public void checkpoint() {
+        synchronized (checkpointLock) {
+            long started = System.nanoTime();
+            boolean complete = true;
+            int[] ids = new int[LEDGER_CHECKPOINT_BATCH_SIZE];
+            long[] amounts = new long[LEDGER_CHECKPOINT_BATCH_SIZE];
+            int count = 0;
+
+            for (int pageIndex = 0; pageIndex <= highestPage.get(); pageIndex++) {
+                Page page = pages.get(pageIndex);
+                if (page == null) {
+                    continue;
+                }
+                for (int word = 0; word < page.dirty.length(); word++) {
+                    long bits = page.dirty.getAndSet(word, 0);
+                    while (bits != 0) {
+                        int slot = word * 64 + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        dirtyAccounts.decrementAndGet();
+
+                        int id = pageIndex << PAGE_BITS | slot;
+                        ReentrantLock lock = lock(id);
+                        try {
+                            amounts[count] = page.balances[slot];
+                        } finally {
+                            lock.unlock();
+                        }
+                        ids[count++] = id;
+
+                        if (count == ids.length) {
+                            complete &= write(ids, amounts, count);
+                            count = 0;
+                        }
+                    }
+                }
+            }
+            if (count > 0) {
+                complete &= write(ids, amounts, count);
+            }
+            if (complete) {
+                lastCheckpointAt = started;
+            }
+        }
+    }
+
+    /**
+     * @return contention and checkpoint counters
+     */
+    public LedgerStats getStats() {
+        long dirty = dirtyAccounts.get();
+        return new LedgerStats(
+                accounts.get(),
+                operations.get(),
+                contendedLocks.get(),
+                totalLockWaitNanos.get(),
+                dirty,
+                checkpointedBalances.get(),
+                failedCheckpoints.get(),
+                dirty == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastCheckpointAt)
+        );
+    }
+
+    private boolean write(int[] ids, long[] amounts, int count) {
+        try {
+            balanceDao.writeBalances(ids, amounts, count);
+            checkpointedBalances.addAndGet(count);
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            System.err.println(e);
+            failedCheckpoints.incrementAndGet();
+            for (int i = 0; i < count; i++) {
+                markDirty(page(ids[i]), ids[i] & PAGE_MASK);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Reads an account that is not in memory yet from the balance table
+     */
+    private void load(int id) throws RecordNotFoundException {
+        Balance balance = balanceDao.getBalance(id);
+        open(id, balance.getAmount());
+    }
+
+    /**
+     * Adds an account unless it is in memory already, the in-memory balance is newer then
+     */
+    private void open(int id, long amount) {
+        Page page = page(id);
+        int slot = id & PAGE_MASK;
+        ReentrantLock lock = lock(id);
+        try {
+            if (page.balances[slot] == NO_ACCOUNT) {
+                page.balances[slot] = amount;
+                accounts.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void markDirty(Page page, int slot) {
+        long bit = 1L << (slot & 63);
+        long previous = page.dirty.getAndAccumulate(slot >>> 6, bit, (bits, added) -> bits | added);
+        if ((previous & bit) == 0) {
+            dirtyAccounts.incrementAndGet();
+        }
+    }
+
+    private Page page(int id) {
+        int index = id >>> PAGE_BITS;
+        Page page = pages.get(index);
+        if (page == null) {
+            pages.compareAndSet(index, null, new Page());
+            page = pages.get(index);
+            highestPage.accumulateAndGet(index, Math::max);
+        }
+        return page;
+    }
+
+    private int stripeOf(int id) {
+        return Math.floorMod(id, stripes.length);
+    }
+
+    private ReentrantLock lock(int id) {
+        return lockStripe(stripeOf(id));
+    }
+
+    private ReentrantLock lockStripe(int stripe) {
+        ReentrantLock lock = stripes[stripe];
+        if (!lock.tryLock()) {
+            long start = System.nanoTime();
+            lock.lock();
+            contendedLocks.incrementAndGet();
+            totalLockWaitNanos.addAndGet(System.nanoTime() - start);
+        }
+        return lock;
+    }
+
+    /**
+     * Balances of PAGE_SIZE consecutive account ids and a bitmap of those changed since the last checkpoint
+     */
+    private static class Page {
+        private final long[] balances = new long[PAGE_SIZE];
+        private final AtomicLongArray dirty = new AtomicLongArray(PAGE_SIZE / 64);
+
+        private Page() {
+            Arrays.fill(balances, NO_ACCOUNT);
+        }
+    }
+}
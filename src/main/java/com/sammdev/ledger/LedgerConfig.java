@@ -0,0 +1,14 @@
+package com.sammdev.ledger;
+
+public class LedgerConfig {
+    // balances are kept and changed in memory, the balance table is only a checkpoint of them.
+    // Only one application instance may run with the ledger, it does not see changes of others
+    public static final boolean LEDGER_ENABLED = Boolean.getBoolean("ledger.enabled");
+
+    // accounts sharing a lock, more stripes mean less contention between unrelated accounts
+    public static final int LEDGER_STRIPES = Integer.getInteger("ledger.stripes", 1024);
+
+    // changed balances are written to the balance table this often, a crash loses at most this much
+    public static final long LEDGER_CHECKPOINT_INTERVAL_MS = Long.getLong("ledger.checkpointIntervalMs", 1_000);
+    public static final int LEDGER_CHECKPOINT_BATCH_SIZE = Integer.getInteger("ledger.checkpointBatchSize", 1_000);
+}
@@ -0,0 +1,79 @@
+package com.sammdev.ledger;
+
+/**
+ * Snapshot of ledger counters
+ */
+public class LedgerStats {
+    private final long accounts, operations, contendedLocks, totalLockWaitNanos;
+    private final long dirtyAccounts, checkpointedBalances, failedCheckpoints, checkpointLagMillis;
+
+    public LedgerStats(long accounts, long operations, long contendedLocks, long totalLockWaitNanos,
+                       long dirtyAccounts, long checkpointedBalances, long failedCheckpoints, long checkpointLagMillis) {
+        this.accounts = accounts;
+        this.operations = operations;
+        this.contendedLocks = contendedLocks;
+        this.totalLockWaitNanos = totalLockWaitNanos;
+        this.dirtyAccounts = dirtyAccounts;
+        this.checkpointedBalances = checkpointedBalances;
+        this.failedCheckpoints = failedCheckpoints;
+        this.checkpointLagMillis = checkpointLagMillis;
+    }
+
+    /**
+     * @return accounts held in memory
+     */
+    public long getAccounts() {
+        return accounts;
+    }
+
+    public long getOperations() {
+        return operations;
+    }
+
+    /**
+     * @return lock acquisitions that had to wait for another operation
+     */
+    public long getContendedLocks() {
+        return contendedLocks;
+    }
+
+    public double getAverageLockWaitMillis() {
+        return contendedLocks == 0 ? 0 : totalLockWaitNanos / 1_000_000.0 / contendedLocks;
+    }
+
+    /**
+     * @return accounts changed since they were last written to the balance table
+     */
+    public long getDirtyAccounts() {
+        return dirtyAccounts;
+    }
+
+    public long getCheckpointedBalances() {
+        return checkpointedBalances;
+    }
+
+    public long getFailedCheckpoints() {
+        return failedCheckpoints;
+    }
+
+    /**
+     * @return how long the oldest unwritten change may be waiting, 0 when nothing is waiting
+     */
+    public long getCheckpointLagMillis() {
+        return checkpointLagMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "LedgerStats{" +
+                "accounts=" + accounts +
+                ", operations=" + operations +
+                ", contendedLocks=" + contendedLocks +
+                ", averageLockWaitMs=" + getAverageLockWaitMillis() +
+                ", dirtyAccounts=" + dirtyAccounts +
+                ", checkpointedBalances=" + checkpointedBalances +
+                ", failedCheckpoints=" + failedCheckpoints +
+                ", checkpointLagMs=" + checkpointLagMillis +
+                '}';
+    }
+}
@@ -0,0 +1,139 @@
+package com.sammdev.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and failures of one instrumented method. Methods pass their body to time or run,
+ * which record the latency of every call and count the exceptions it throws.
+ */
+public class MethodTimer implements MethodTimerMXBean {
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+    private final LongAdder failureCount = new LongAdder();
+    private final Metrics metrics;
+
+    MethodTimer(String name, Metrics metrics) {
+        this.name = name;
+        this.metrics = metrics;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Body of a timed method. Checked exceptions of the body are rethrown as they are,
+     * a body throwing two different ones needs the exception types given explicitly.
+     */
+    @FunctionalInterface
+    public interface Call<T, E1 extends Exception, E2 extends Exception> {
+        T call() throws E1, E2;
+    }
+
+    /**
+     * Body of a timed method without result
+     */
+    @FunctionalInterface
+    public interface Action<E1 extends Exception, E2 extends Exception> {
+        void run() throws E1, E2;
+    }
+
+    /**
+     * Calls the body, records its latency and counts its failure if it throws
+     *
+     * @param body  method body
+     * @return      result of the body
+     */
+    public <T, E1 extends Exception, E2 extends Exception> T time(Call<T, E1, E2> body) throws E1, E2 {
+        long start = System.nanoTime();
+        try {
+            return body.call();
+        } catch (Exception e) {
+            failed(e);
+            throw e;
+        } finally {
+            record(start);
+        }
+    }
+
+    /**
+     * Runs the body, records its latency and counts its failure if it throws
+     *
+     * @param body  method body
+     */
+    public <E1 extends Exception, E2 extends Exception> void run(Action<E1, E2> body) throws E1, E2 {
+        this.<Void, E1, E2>time(() -> {
+            body.run();
+            return null;
+        });
+    }
+
+    /**
+     * @param startNanos    System.nanoTime() taken when the method started
+     */
+    private void record(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Counts a failure of this method by its exception type, the call is still recorded by record
+     */
+    private void failed(Throwable failure) {
+        String type = failure.getClass().getSimpleName();
+        failures.computeIfAbsent(type, t -> new LongAdder()).increment();
+        failureCount.increment();
+        metrics.failed(failure);
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public long getCalls() {
+        return latency.getCount();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMeanMillis();
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.getPercentileMillis(50);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMaxMillis();
+    }
+
+    @Override
+    public long getFailures() {
+        return failureCount.sum();
+    }
+
+    @Override
+    public Map<String, Long> getFailuresByType() {
+        Map<String, Long> byType = new TreeMap<>();
+        failures.forEach((type, count) -> byType.put(type, count.sum()));
+        return byType;
+    }
+
+    @Override
+    public String toString() {
+        String text = name + ": " + latency;
+        return failureCount.sum() == 0 ? text : text + ", failures=" + getFailuresByType();
+    }
+}
@@ -0,0 +1,26 @@
+package com.sammdev.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of a method timer, published as com.sammdev:type=Method,name=...
+ */
+public interface MethodTimerMXBean {
+
+    long getCalls();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    long getFailures();
+
+    /**
+     * @return failures by simple name of the exception class
+     */
+    Map<String, Long> getFailuresByType();
+}
@@ -0,0 +1,89 @@
+package com.sammdev.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Method timers of the services and DAOs, each published as an MBean when it is created
+ */
+public class Metrics {
+
+    private static final Metrics instance = new Metrics();
+
+    private final Map<String, MethodTimer> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+    // exception counted last on each thread, the same exception passing through nested timed methods counts once
+    private final ThreadLocal<WeakReference<Throwable>> lastCounted = new ThreadLocal<>();
+
+    private Metrics() {
+        // hide constructor, singleton pattern
+    }
+
+    public static Metrics getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets or creates a timer, meant for static fields of the measured classes
+     *
+     * @param name  unique name, "class.method"
+     * @return      timer of the method
+     */
+    public MethodTimer timer(String name) {
+        return timers.computeIfAbsent(name, n -> register(new MethodTimer(n, this)));
+    }
+
+    /**
+     * @return timers that were called at least once, slowest p99 first
+     */
+    public List<MethodTimer> getTimers() {
+        List<MethodTimer> called = new ArrayList<>();
+        for (MethodTimer timer : timers.values()) {
+            if (timer.getCalls() > 0) {
+                called.add(timer);
+            }
+        }
+        called.sort(Comparator.comparingDouble(MethodTimer::getP99Millis).reversed());
+        return called;
+    }
+
+    /**
+     * @return failures by simple name of the exception class, an exception rethrown by
+     *         several nested methods is counted once
+     */
+    public Map<String, Long> getFailures() {
+        Map<String, Long> byType = new TreeMap<>();
+        failures.forEach((type, count) -> byType.put(type, count.sum()));
+        return byType;
+    }
+
+    void failed(Throwable failure) {
+        WeakReference<Throwable> last = lastCounted.get();
+        if (last != null && last.get() == failure) {
+            return;
+        }
+        lastCounted.set(new WeakReference<>(failure));
+        failures.computeIfAbsent(failure.getClass().getSimpleName(), t -> new LongAdder()).increment();
+    }
+
+    private MethodTimer register(MethodTimer timer) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(timer, new ObjectName("com.sammdev:type=Method,name=" + ObjectName.quote(timer.getName())));
+        } catch (JMException e) {
+            // the timer still works, it is only missing in JMX
+            System.err.println(e);
+        }
+        return timer;
+    }
+}
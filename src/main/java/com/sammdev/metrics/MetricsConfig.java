@@ -0,0 +1,13 @@
+package com.sammdev.metrics;
+
+public class MetricsConfig {
+
+    // hidden main menu choice printing all statistics on the process console, never offered to server mode clients
+    public static final boolean OPERATOR_COMMAND_ENABLED = Boolean.getBoolean("metrics.operatorCommand");
+
+    // main menu choice of the operator command, not listed in the menu
+    public static final int OPERATOR_COMMAND_CHOICE = 0;
+
+    // statements listed by the operator command, most total time first
+    public static final int OPERATOR_TOP_STATEMENTS = 10;
+}
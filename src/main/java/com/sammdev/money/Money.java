@@ -0,0 +1,89 @@
+package com.sammdev.money;
+
+import com.sammdev.exception.IncorrectInputFormatException;
+
+/**
+ * Money amounts are kept as a long of minor units (cents), 12.34 is stored as 1234.
+ * Helpers here work on plain longs, so no objects are created on the hot path.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+    public static final long MINOR_UNITS = 100;
+
+    private Money() {
+    }
+
+    /**
+     * Parses amount entered by user, "12", "12.3", "12.34" and "12,34" are accepted.
+     * Amounts with more than two decimal places are rejected instead of being rounded.
+     *
+     * @param input                             amount as text
+     * @return                                  amount in minor units
+     * @throws IncorrectInputFormatException    if the input is not a valid amount
+     */
+    public static long parse(String input) throws IncorrectInputFormatException {
+        int length = input.length();
+        if (length == 0) {
+            throw new IncorrectInputFormatException("Amount is empty");
+        }
+
+        int i = 0;
+        boolean negative = input.charAt(0) == '-';
+        if (negative || input.charAt(0) == '+') {
+            i++;
+        }
+
+        long major = 0;
+        int digits = 0;
+        for (; i < length && isDigit(input.charAt(i)); i++, digits++) {
+            if (major > (Long.MAX_VALUE / MINOR_UNITS - 10) / 10) {
+                throw new IncorrectInputFormatException("Amount is too large");
+            }
+            major = major * 10 + (input.charAt(i) - '0');
+        }
+
+        long minor = 0;
+        int decimals = 0;
+        if (i < length && (input.charAt(i) == '.' || input.charAt(i) == ',')) {
+            for (i++; i < length && isDigit(input.charAt(i)); i++, decimals++) {
+                if (decimals == SCALE) {
+                    throw new IncorrectInputFormatException("Amount can have at most " + SCALE + " decimal places");
+                }
+                minor = minor * 10 + (input.charAt(i) - '0');
+            }
+        }
+
+        if (i != length || digits + decimals == 0) {
+            throw new IncorrectInputFormatException("Incorrect amount format");
+        }
+        for (; decimals < SCALE; decimals++) {
+            minor *= 10;
+        }
+
+        long amount = major * MINOR_UNITS + minor;
+        return negative ? -amount : amount;
+    }
+
+    /**
+     * @param amount    amount in minor units
+     * @return          amount with two decimal places, 1234 is formatted as "12.34"
+     */
+    public static String format(long amount) {
+        StringBuilder builder = new StringBuilder(24);
+        if (amount < 0) {
+            builder.append('-');
+        }
+        long major = Math.abs(amount / MINOR_UNITS);
+        long minor = Math.abs(amount % MINOR_UNITS);
+        builder.append(major).append('.');
+        if (minor < 10) {
+            builder.append('0');
+        }
+        return builder.append(minor).toString();
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
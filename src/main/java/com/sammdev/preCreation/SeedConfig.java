@@ -0,0 +1,106 @@
+package com.sammdev.preCreation;
+
+/**
+ * Settings of a seeding run, read from system properties
+ */
+public class SeedConfig {
+
+    public enum Distribution {
+        /** every account is equally likely to send and receive */
+        UNIFORM,
+        /** a few accounts take part in most payments, like merchants */
+        SKEWED
+    }
+
+    private final int customers;
+    private final int paymentsPerCustomer;
+    private final long seed;
+    private final Distribution distribution;
+    private final double skew;
+    private final long maxInitialBalance;
+    private final long maxPaymentAmount;
+    private final int historyDays;
+    private final int threads;
+    private final int chunkSize;
+
+    public SeedConfig(int customers, int paymentsPerCustomer, long seed, Distribution distribution, double skew,
+                      long maxInitialBalance, long maxPaymentAmount, int historyDays, int threads, int chunkSize) {
+        this.customers = customers;
+        this.paymentsPerCustomer = paymentsPerCustomer;
+        this.seed = seed;
+        this.distribution = distribution;
+        this.skew = skew;
+        this.maxInitialBalance = maxInitialBalance;
+        this.maxPaymentAmount = maxPaymentAmount;
+        this.historyDays = historyDays;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * -Dseed.customers=10                  customers to create
+     * -Dseed.paymentsPerCustomer=0         average payments per created customer
+     * -Dseed.randomSeed=42                 same seed gives the same data
+     * -Dseed.distribution=UNIFORM          UNIFORM or SKEWED choice of payment senders and receivers
+     * -Dseed.skew=3.0                      how strongly SKEWED favours low account ids
+     * -Dseed.maxInitialBalance=100000      in minor units
+     * -Dseed.maxPaymentAmount=10000        in minor units
+     * -Dseed.historyDays=365               payments are spread over this many past days
+     * -Dseed.threads=cores                 parallel writers
+     * -Dseed.chunkSize=5000                rows written per transaction
+     */
+    public static SeedConfig fromSystemProperties() {
+        return new SeedConfig(
+                Integer.getInteger("seed.customers", 10),
+                Integer.getInteger("seed.paymentsPerCustomer", 0),
+                Long.getLong("seed.randomSeed", 42),
+                Distribution.valueOf(System.getProperty("seed.distribution", "UNIFORM").toUpperCase()),
+                Double.parseDouble(System.getProperty("seed.skew", "3.0")),
+                Long.getLong("seed.maxInitialBalance", 100_000),
+                Long.getLong("seed.maxPaymentAmount", 10_000),
+                Integer.getInteger("seed.historyDays", 365),
+                Integer.getInteger("seed.threads", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("seed.chunkSize", 5_000)
+        );
+    }
+
+    public int getCustomers() {
+        return customers;
+    }
+
+    public int getPaymentsPerCustomer() {
+        return paymentsPerCustomer;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public Distribution getDistribution() {
+        return distribution;
+    }
+
+    public double getSkew() {
+        return skew;
+    }
+
+    public long getMaxInitialBalance() {
+        return maxInitialBalance;
+    }
+
+    public long getMaxPaymentAmount() {
+        return maxPaymentAmount;
+    }
+
+    public int getHistoryDays() {
+        return historyDays;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+}
@@ -0,0 +1,40 @@
+package com.sammdev.preCreation;
+
+/**
+ * Result of a seeding run
+ */
+public class SeedReport {
+    private final long customers, payments, elapsedNanos;
+
+    public SeedReport(long customers, long payments, long elapsedNanos) {
+        this.customers = customers;
+        this.payments = payments;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getCustomers() {
+        return customers;
+    }
+
+    public long getPayments() {
+        return payments;
+    }
+
+    /**
+     * @return customers, balances and payments written
+     */
+    public long getRows() {
+        return customers * 2 + payments;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : getRows() * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Seeded " + customers + " customers and " + payments + " payments, "
+                + getRows() + " rows in " + elapsedNanos / 1_000_000 + " ms ("
+                + Math.round(getRowsPerSecond()) + " rows/s)";
+    }
+}
@@ -0,0 +1,210 @@
+package com.sammdev.preCreation;
+
+import com.sammdev.db.cache.EmailIndex;
+import com.sammdev.db.connection.ConnectionProvider;
+import com.sammdev.db.dao.BulkInsert;
+import com.sammdev.db.dao.IdAllocator;
+import com.sammdev.db.dao.PaymentSummaryDao;
+import com.sammdev.db.model.Payment;
+import com.sammdev.exception.FailedToCreateRecordException;
+import com.sammdev.security.PasswordHashing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sammdev.preCreation.RandomNames.FIRST_NAMES;
+import static com.sammdev.preCreation.RandomNames.LAST_NAMES;
+
+/**
+ * Generates customers, balances and payment histories for load testing.
+ * Work is split into chunks written in parallel, every chunk is one transaction of multi-row inserts.
+ * Each chunk has its own random generator derived from the seed, so a seed always produces the same data.
+ * Payments are history only, they are not applied to the generated balances, but they are added to the payment summaries.
+ */
+public class SeedingEngine {
+
+    private static final String[] CUSTOMER_COLUMNS = {"id", "first_name", "last_name", "address", "email", "password"};
+    private static final String[] BALANCE_COLUMNS = {"id", "balance", "version"};
+    private static final String[] PAYMENT_COLUMNS = {"payment_id", "sender_id", "reciever_id", "amount", "created_at"};
+
+    private static final int ROWS_PER_STATEMENT = 500;
+    private static final int STATEMENTS_PER_BATCH = 4;
+    private static final int MAX_ATTEMPTS = 3;
+
+    // seeded accounts all get the same password, hashing it per account would dominate the run
+    private static final String SEED_PASSWORD = "admin";
+
+    private final ConnectionProvider connectionProvider = ConnectionProvider.getInstance();
+    private final EmailIndex emailIndex = EmailIndex.getInstance();
+    private final PaymentSummaryDao paymentSummaryDao = PaymentSummaryDao.getInstance();
+
+    private final AtomicLong customersWritten = new AtomicLong();
+    private final AtomicLong paymentsWritten = new AtomicLong();
+
+    /**
+     * Runs the seeding and waits for all chunks
+     *
+     * @param config    volume, seed and distribution
+     * @return          written rows and throughput
+     * @throws FailedToCreateRecordException if any chunk failed, chunks committed before stay in the database
+     */
+    public SeedReport seed(SeedConfig config) throws FailedToCreateRecordException {
+        long start = System.nanoTime();
+        if (config.getCustomers() <= 0) {
+            return new SeedReport(0, 0, 0);
+        }
+
+        String passwordHash = PasswordHashing.getInstance().hash(SEED_PASSWORD);
+        int firstCustomerId = IdAllocator.customers().reserveRange(config.getCustomers());
+        long payments = config.getCustomers() < 2 ? 0 : (long) config.getCustomers() * config.getPaymentsPerCustomer();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, config.getThreads()));
+        List<Future<?>> chunks = new ArrayList<>();
+        try {
+            int chunkIndex = 0;
+            for (int from = 0; from < config.getCustomers(); from += config.getChunkSize(), chunkIndex++) {
+                int count = Math.min(config.getChunkSize(), config.getCustomers() - from);
+                int firstId = firstCustomerId + from;
+                SplittableRandom random = new SplittableRandom(config.getSeed() * 31 + chunkIndex);
+                chunks.add(executor.submit(() -> {
+                    writeCustomers(firstId, count, passwordHash, config, random);
+                    return null;
+                }));
+            }
+            for (long from = 0; from < payments; from += config.getChunkSize(), chunkIndex++) {
+                int count = (int) Math.min(config.getChunkSize(), payments - from);
+                SplittableRandom random = new SplittableRandom(config.getSeed() * 31 + chunkIndex);
+                chunks.add(executor.submit(() -> {
+                    writePayments(firstCustomerId, count, config, random);
+                    return null;
+                }));
+            }
+
+            int failedChunks = 0;
+            for (Future<?> chunk : chunks) {
+                try {
+                    chunk.get();
+                } catch (ExecutionException e) {
+                    System.err.println(e.getCause());
+                    failedChunks++;
+                }
+            }
+            if (failedChunks > 0) {
+                throw new FailedToCreateRecordException(failedChunks + " of " + chunks.size() + " seeding chunks failed!");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FailedToCreateRecordException("Seeding was interrupted!");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new SeedReport(customersWritten.get(), paymentsWritten.get(), System.nanoTime() - start);
+    }
+
+    private void writeCustomers(int firstId, int count, String passwordHash, SeedConfig config,
+                                SplittableRandom random) throws SQLException {
+        List<String> emails = new ArrayList<>(count);
+        try (Connection connection = connectionProvider.getConnection()) {
+            connection.setAutoCommit(false);
+            try (BulkInsert customers = new BulkInsert(connection, "customers", CUSTOMER_COLUMNS, ROWS_PER_STATEMENT, STATEMENTS_PER_BATCH);
+                 BulkInsert balances = new BulkInsert(connection, "balance", BALANCE_COLUMNS, ROWS_PER_STATEMENT, STATEMENTS_PER_BATCH)) {
+                for (int id = firstId; id < firstId + count; id++) {
+                    String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+                    String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                    // the id keeps generated emails unique without asking the database
+                    String email = (firstName + '_' + lastName).toLowerCase() + '.' + id + "@gmail.com";
+                    customers.addRow(id, firstName, lastName, "", email, passwordHash);
+                    balances.addRow(id, random.nextLong(config.getMaxInitialBalance() + 1), 0L);
+                    emails.add(email);
+                }
+                customers.flush();
+                balances.flush();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+        emails.forEach(emailIndex::add);
+        customersWritten.addAndGet(count);
+    }
+
+    private void writePayments(int firstCustomerId, int count, SeedConfig config,
+                               SplittableRandom random) throws SQLException {
+        int firstPaymentId = IdAllocator.payments().reserveRange(count);
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        long historySeconds = Math.max(1, config.getHistoryDays() * 86_400L);
+
+        // generated up front, a retried transaction writes the same rows
+        List<Payment> generated = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int sender = pickCustomer(config, random);
+            int receiver = pickCustomer(config, random);
+            if (receiver == sender) {
+                receiver = (receiver + 1) % config.getCustomers();
+            }
+            generated.add(new Payment(firstPaymentId + i, firstCustomerId + sender, null,
+                    firstCustomerId + receiver, null, 1 + random.nextLong(config.getMaxPaymentAmount()),
+                    now.minusSeconds(random.nextLong(historySeconds))));
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                writePayments(generated);
+                break;
+            } catch (SQLTransactionRollbackException e) {
+                // chunks of busy customers update the same summary rows, a deadlock rolls back the whole chunk
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+        paymentsWritten.addAndGet(count);
+    }
+
+    private void writePayments(List<Payment> generated) throws SQLException {
+        try (Connection connection = connectionProvider.getConnection()) {
+            connection.setAutoCommit(false);
+            try (BulkInsert payments = new BulkInsert(connection, "payments", PAYMENT_COLUMNS, ROWS_PER_STATEMENT, STATEMENTS_PER_BATCH)) {
+                for (Payment payment : generated) {
+                    payments.addRow(
+                            payment.getPaymentId(),
+                            payment.getSenderId(),
+                            payment.getRecieverId(),
+                            payment.getAmount(),
+                            Timestamp.valueOf(payment.getTime())
+                    );
+                }
+                payments.flush();
+                paymentSummaryDao.addPayments(connection, generated);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return offset of a seeded customer, SKEWED favours low offsets with a power law
+     */
+    private int pickCustomer(SeedConfig config, SplittableRandom random) {
+        if (config.getDistribution() == SeedConfig.Distribution.SKEWED) {
+            return (int) (config.getCustomers() * Math.pow(random.nextDouble(), config.getSkew()));
+        }
+        return random.nextInt(config.getCustomers());
+    }
+}
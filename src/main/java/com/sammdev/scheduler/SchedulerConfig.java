@@ -0,0 +1,16 @@
+package com.sammdev.scheduler;
+
+public class SchedulerConfig {
+    // executes due standing orders in the background, instances sharing a database may all run it
+    public static final boolean SCHEDULER_ENABLED =
+            Boolean.parseBoolean(System.getProperty("scheduler.enabled", "true"));
+
+    // threads claiming and paying due orders, they never claim the same order
+    public static final int SCHEDULER_THREADS = Integer.getInteger("scheduler.threads", 2);
+
+    // how often every thread looks for due orders, standing orders are paid at most this late
+    public static final long SCHEDULER_POLL_INTERVAL_MS = Long.getLong("scheduler.pollIntervalMs", 10_000);
+
+    // orders claimed at once, their payments are executed before the next chunk is claimed
+    public static final int SCHEDULER_CLAIM_SIZE = Integer.getInteger("scheduler.claimSize", 500);
+}
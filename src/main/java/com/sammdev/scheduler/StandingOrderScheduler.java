@@ -0,0 +1,169 @@
+package com.sammdev.scheduler;
+
+import com.sammdev.db.dao.StandingOrderDao;
+import com.sammdev.db.model.Customer;
+import com.sammdev.db.model.StandingOrder;
+import com.sammdev.db.model.TransferBatchResult;
+import com.sammdev.db.model.TransferItem;
+import com.sammdev.enums.TransferItemStatus;
+import com.sammdev.exception.NotEnoughMoneyException;
+import com.sammdev.exception.RecordNotFoundException;
+import com.sammdev.metrics.MethodTimer;
+import com.sammdev.metrics.Metrics;
+import com.sammdev.service.CustomerService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.sammdev.scheduler.SchedulerConfig.SCHEDULER_CLAIM_SIZE;
+import static com.sammdev.scheduler.SchedulerConfig.SCHEDULER_POLL_INTERVAL_MS;
+import static com.sammdev.scheduler.SchedulerConfig.SCHEDULER_THREADS;
+
+/**
+ * Pays due standing orders. Every thread claims chunks of due orders from the database,
+ * groups them by sender and pays each sender's orders with one batch transfer.
+ */
+public class StandingOrderScheduler {
+
+    private static final StandingOrderScheduler instance = new StandingOrderScheduler();
+
+    private static final Metrics metrics = Metrics.getInstance();
+    private static final MethodTimer RUN_DUE_TIMER = metrics.timer("standingOrderScheduler.runDue");
+
+    private final StandingOrderDao standingOrderDao = StandingOrderDao.getInstance();
+    private final CustomerService customerService = CustomerService.getInstance();
+
+    private ScheduledExecutorService executor;
+
+    private StandingOrderScheduler() {
+        // hide constructor, singleton pattern
+    }
+
+    public static StandingOrderScheduler getInstance() {
+        return instance;
+    }
+
+    /**
+     * Starts polling for due orders, the threads start at evenly spread offsets of the poll interval
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(SCHEDULER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "standing-orders-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < SCHEDULER_THREADS; i++) {
+            executor.scheduleWithFixedDelay(this::runDue,
+                    SCHEDULER_POLL_INTERVAL_MS * i / SCHEDULER_THREADS, SCHEDULER_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops polling and waits for chunks being paid, claimed orders are never left half paid by a normal shutdown
+     */
+    public synchronized void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    /**
+     * Pays all orders due now, chunk by chunk
+     */
+    public void runDue() {
+        try {
+            RUN_DUE_TIMER.run(() -> {
+                LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+                List<StandingOrder> claimed;
+                do {
+                    claimed = standingOrderDao.claimDue(now, SCHEDULER_CLAIM_SIZE);
+                    if (!claimed.isEmpty()) {
+                        execute(claimed, now);
+                    }
+                } while (claimed.size() == SCHEDULER_CLAIM_SIZE && !Thread.currentThread().isInterrupted());
+            });
+        } catch (RuntimeException e) {
+            // a failing run must not cancel the periodic task, the next poll tries again
+            System.err.println(e);
+        }
+    }
+
+    private void execute(List<StandingOrder> claimed, LocalDateTime now) {
+        Map<Integer, List<StandingOrder>> bySender = new LinkedHashMap<>();
+        for (StandingOrder order : claimed) {
+            bySender.computeIfAbsent(order.getSenderId(), id -> new ArrayList<>()).add(order);
+        }
+
+        List<StandingOrder> executed = new ArrayList<>(claimed.size());
+        List<TransferItemStatus> statuses = new ArrayList<>(claimed.size());
+        for (Map.Entry<Integer, List<StandingOrder>> entry : bySender.entrySet()) {
+            statuses.addAll(Arrays.asList(pay(entry.getKey(), entry.getValue())));
+            executed.addAll(entry.getValue());
+        }
+        standingOrderDao.recordResults(executed, statuses.toArray(new TransferItemStatus[0]), now);
+    }
+
+    /**
+     * Pays orders of one sender in one batch. When the sender can not cover all of them,
+     * they are paid one by one in order, so the orders that fit are still paid.
+     */
+    private TransferItemStatus[] pay(int senderId, List<StandingOrder> orders) {
+        Customer sender = new Customer();
+        sender.setId(senderId);
+        TransferItemStatus[] statuses = new TransferItemStatus[orders.size()];
+
+        List<TransferItem> items = new ArrayList<>(orders.size());
+        for (StandingOrder order : orders) {
+            items.add(new TransferItem(order.getReceiverId(), order.getAmount()));
+        }
+        try {
+            TransferBatchResult result = customerService.transferBatch(sender, items);
+            for (int i = 0; i < statuses.length; i++) {
+                statuses[i] = result.getStatus(i);
+            }
+            return statuses;
+        } catch (NotEnoughMoneyException e) {
+            // paid one by one below
+        } catch (RecordNotFoundException | RuntimeException e) {
+            System.err.println(e);
+            Arrays.fill(statuses, TransferItemStatus.FAILED);
+            return statuses;
+        }
+
+        for (int i = 0; i < statuses.length; i++) {
+            StandingOrder order = orders.get(i);
+            try {
+                customerService.transfer(sender, order.getReceiverId(), order.getAmount());
+                statuses[i] = TransferItemStatus.COMPLETED;
+            } catch (NotEnoughMoneyException e) {
+                statuses[i] = TransferItemStatus.NOT_ENOUGH_MONEY;
+            } catch (RecordNotFoundException e) {
+                statuses[i] = TransferItemStatus.UNKNOWN_RECEIVER;
+            } catch (RuntimeException e) {
+                System.err.println(e);
+                statuses[i] = TransferItemStatus.FAILED;
+            }
+        }
+        return statuses;
+    }
+}
@@ -0,0 +1,38 @@
+package com.sammdev.security;
+
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Unsalted SHA-512 hex hashes written by earlier versions of the application.
+ * Only verifies them, matching passwords are rehashed with the current hasher on login.
+ */
+public class LegacySha512PasswordVerifier implements PasswordVerifier {
+
+    @Override
+    public boolean verify(String password, String encoded) {
+        // same encoding the old getHash used: platform charset, hex without leading zeros, padded to 32 chars
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-512").digest(password.getBytes(Charset.defaultCharset()));
+            StringBuilder hex = new StringBuilder(new BigInteger(1, digest).toString(16));
+            while (hex.length() < 32) {
+                hex.insert(0, '0');
+            }
+            return MessageDigest.isEqual(hex.toString().getBytes(), encoded.getBytes());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean supports(String encoded) {
+        return encoded != null && encoded.indexOf('$') < 0;
+    }
+
+    @Override
+    public boolean needsRehash(String encoded) {
+        return true;
+    }
+}
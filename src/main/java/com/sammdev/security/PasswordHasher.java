@@ -0,0 +1,13 @@
+package com.sammdev.security;
+
+/**
+ * Algorithm for storing and checking passwords
+ */
+public interface PasswordHasher extends PasswordVerifier {
+
+    /**
+     * @param password  plain password
+     * @return          encoded hash, including everything needed to verify it later
+     */
+    String hash(String password);
+}
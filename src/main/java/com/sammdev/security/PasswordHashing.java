@@ -0,0 +1,129 @@
+package com.sammdev.security;
+
+import com.sammdev.exception.PasswordHashingException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.sammdev.security.SecurityConfig.HASHING_QUEUE_SIZE;
+import static com.sammdev.security.SecurityConfig.HASHING_TARGET_MS;
+import static com.sammdev.security.SecurityConfig.HASHING_THREADS;
+import static com.sammdev.security.SecurityConfig.PBKDF2_DEFAULT_ITERATIONS;
+import static com.sammdev.security.SecurityConfig.PBKDF2_MIN_ITERATIONS;
+
+/**
+ * Entry point for hashing and checking passwords.
+ * New hashes use PBKDF2, older formats are still accepted and reported for rehashing.
+ * All hashing runs on a small bounded pool, when it is saturated callers are turned away
+ * instead of taking CPU from other work.
+ */
+public class PasswordHashing {
+
+    private static final PasswordHashing instance = new PasswordHashing();
+
+    private final Pbkdf2PasswordHasher current = new Pbkdf2PasswordHasher(PBKDF2_DEFAULT_ITERATIONS);
+    private final List<PasswordVerifier> verifiers = Arrays.asList(current, new LegacySha512PasswordVerifier());
+
+    private final ThreadPoolExecutor executor;
+
+    private PasswordHashing() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                HASHING_THREADS, HASHING_THREADS,
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(HASHING_QUEUE_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+    }
+
+    public static PasswordHashing getInstance() {
+        return instance;
+    }
+
+    /**
+     * Picks the PBKDF2 iteration count so that one hash takes about the configured target time on this machine
+     */
+    public void calibrate() {
+        int probeIterations = PBKDF2_MIN_ITERATIONS;
+        Pbkdf2PasswordHasher probe = new Pbkdf2PasswordHasher(probeIterations);
+        probe.hash("calibration"); // warm up
+
+        // fastest of a few runs, so one slow run does not push the cost down
+        long elapsedNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            probe.hash("calibration");
+            elapsedNanos = Math.min(elapsedNanos, Math.max(1, System.nanoTime() - start));
+        }
+
+        long iterations = probeIterations * TimeUnit.MILLISECONDS.toNanos(HASHING_TARGET_MS) / elapsedNanos;
+        current.setIterations((int) Math.max(PBKDF2_MIN_ITERATIONS, Math.min(Integer.MAX_VALUE, iterations)));
+    }
+
+    public int getIterations() {
+        return current.getIterations();
+    }
+
+    /**
+     * @param password  plain password
+     * @return          hash to store
+     * @throws PasswordHashingException if hashing is overloaded or interrupted
+     */
+    public String hash(String password) {
+        return run(() -> current.hash(password));
+    }
+
+    /**
+     * @param password  plain password
+     * @param encoded   stored hash of any supported format
+     * @return          true if the password matches
+     * @throws PasswordHashingException if hashing is overloaded or interrupted
+     */
+    public boolean verify(String password, String encoded) {
+        PasswordVerifier verifier = verifierFor(encoded);
+        return verifier != null && run(() -> verifier.verify(password, encoded));
+    }
+
+    /**
+     * @param encoded   stored hash
+     * @return          true if the hash should be replaced by a new one on the next successful login
+     */
+    public boolean needsRehash(String encoded) {
+        PasswordVerifier verifier = verifierFor(encoded);
+        return verifier != current || current.needsRehash(encoded);
+    }
+
+    private PasswordVerifier verifierFor(String encoded) {
+        for (PasswordVerifier verifier : verifiers) {
+            if (verifier.supports(encoded)) {
+                return verifier;
+            }
+        }
+        return null;
+    }
+
+    private <T> T run(Callable<T> task) {
+        try {
+            return executor.submit(task).get();
+        } catch (RejectedExecutionException e) {
+            throw new PasswordHashingException("Too many password checks at once, try again later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingException("Interrupted while hashing password");
+        } catch (ExecutionException e) {
+            System.err.println(e.getCause());
+            throw new PasswordHashingException("Failed to hash password");
+        }
+    }
+}
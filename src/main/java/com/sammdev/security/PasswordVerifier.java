@@ -0,0 +1,26 @@
+package com.sammdev.security;
+
+/**
+ * Algorithm for checking stored passwords, also implemented by formats that are no longer written
+ */
+public interface PasswordVerifier {
+
+    /**
+     * @param password  plain password
+     * @param encoded   stored hash
+     * @return          true if the password matches the hash
+     */
+    boolean verify(String password, String encoded);
+
+    /**
+     * @param encoded   stored hash
+     * @return          true if this verifier understands the format of the hash
+     */
+    boolean supports(String encoded);
+
+    /**
+     * @param encoded   stored hash
+     * @return          true if the hash is weaker than what the application produces today
+     */
+    boolean needsRehash(String encoded);
+}
@@ -0,0 +1,13 @@
+package com.sammdev.security;
+
+public class SecurityConfig {
+    // hashing runs on its own bounded pool so logins can not take every core
+    public static final int HASHING_THREADS = Integer.getInteger("security.hashingThreads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    public static final int HASHING_QUEUE_SIZE = Integer.getInteger("security.hashingQueueSize", 256);
+
+    // PBKDF2 iteration count is calibrated at startup so one hash takes about this long
+    public static final long HASHING_TARGET_MS = Long.getLong("security.hashingTargetMs", 50);
+    public static final int PBKDF2_MIN_ITERATIONS = 10_000;
+    public static final int PBKDF2_DEFAULT_ITERATIONS = 100_000;
+}
@@ -0,0 +1,229 @@
+package com.sammdev.server;
+
+import com.sammdev.service.BankingService;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sammdev.server.ServerConfig.SERVER_IDLE_TIMEOUT_MS;
+import static com.sammdev.server.ServerConfig.SERVER_MAX_SESSIONS;
+import static com.sammdev.server.ServerConfig.SERVER_PORT;
+import static com.sammdev.server.ServerConfig.SERVER_SHUTDOWN_TIMEOUT_MS;
+
+/**
+ * Serves the console menus to many clients over TCP, e.g. with telnet or netcat.
+ * Every connection gets its own BankingService session, all sessions share the service and DAO layer.
+ * Sessions run on virtual threads when the runtime has them, so thousands of mostly idle
+ * terminals do not need thousands of platform threads.
+ */
+public class BankingServer {
+
+    private final Semaphore sessionPermits = new Semaphore(SERVER_MAX_SESSIONS);
+    private final ExecutorService executor = newSessionExecutor();
+    private final Map<Long, Socket> sockets = new ConcurrentHashMap<>();
+    private final Map<Long, SessionMetrics> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong sessionIds = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong steps = new AtomicLong();
+
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * Accepts connections until shutdown
+     *
+     * @throws IOException if the port can not be opened
+     */
+    public void serve() throws IOException {
+        try (ServerSocket socket = new ServerSocket(SERVER_PORT)) {
+            serverSocket = socket;
+            System.out.println("Listening on port " + SERVER_PORT + ", at most " + SERVER_MAX_SESSIONS + " sessions");
+            while (!socket.isClosed()) {
+                Socket client;
+                try {
+                    client = socket.accept();
+                } catch (SocketException e) {
+                    // closed by shutdown
+                    break;
+                }
+                if (!sessionPermits.tryAcquire()) {
+                    refuse(client);
+                    continue;
+                }
+                SessionMetrics metrics = new SessionMetrics(sessionIds.incrementAndGet(), client.getRemoteSocketAddress());
+                sockets.put(metrics.getId(), client);
+                sessions.put(metrics.getId(), metrics);
+                executor.execute(() -> handle(client, metrics));
+            }
+        }
+    }
+
+    /**
+     * Stops accepting connections, disconnects all sessions and waits for operations they are still running,
+     * so no transfer starts or finishes after the services below the server are shut down
+     */
+    public void shutdown() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            System.err.println(e);
+        }
+        for (Socket socket : sockets.values()) {
+            closeQuietly(socket);
+        }
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(SERVER_SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                System.err.println("Sessions still running after " + SERVER_SHUTDOWN_TIMEOUT_MS + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return counters since start
+     */
+    public ServerStats getStats() {
+        return new ServerStats(
+                sessions.size(),
+                sessionIds.get(),
+                refused.get(),
+                completed.get(),
+                timedOut.get(),
+                steps.get()
+        );
+    }
+
+    /**
+     * @return metrics of the currently connected sessions
+     */
+    public List<SessionMetrics> getSessions() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    private void handle(Socket socket, SessionMetrics metrics) {
+        try {
+            socket.setSoTimeout(SERVER_IDLE_TIMEOUT_MS);
+            socket.setTcpNoDelay(true);
+            PrintStream out = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), true,
+                    StandardCharsets.UTF_8.name());
+            BankingService session = new BankingService(new SessionInputStream(socket.getInputStream(), metrics), out, out);
+            metrics.attach(session);
+
+            session.run();
+
+            if (metrics.isTimedOut()) {
+                timedOut.incrementAndGet();
+                out.println("Session closed after " + SERVER_IDLE_TIMEOUT_MS / 1000 + " s without input");
+            }
+        } catch (IOException e) {
+            System.err.println(e);
+        } finally {
+            closeQuietly(socket);
+            sockets.remove(metrics.getId());
+            sessions.remove(metrics.getId());
+            steps.addAndGet(metrics.getSteps());
+            completed.incrementAndGet();
+            sessionPermits.release();
+            System.out.println(metrics);
+        }
+    }
+
+    private void refuse(Socket client) {
+        refused.incrementAndGet();
+        try {
+            client.getOutputStream().write("Server is busy, try again later\n".getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // client is gone already
+        }
+        closeQuietly(client);
+    }
+
+    private void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.err.println(e);
+        }
+    }
+
+    /**
+     * Virtual threads exist since Java 21, the project still builds for older runtimes
+     */
+    private static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "banking-session-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Records input activity of a session and notices when its idle timeout expires.
+     * Scanner treats the timeout like the end of input, so the session simply ends.
+     */
+    private static class SessionInputStream extends FilterInputStream {
+        private final SessionMetrics metrics;
+
+        private SessionInputStream(InputStream in, SessionMetrics metrics) {
+            super(in);
+            this.metrics = metrics;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int b = super.read();
+                if (b >= 0) {
+                    metrics.inputRead(1);
+                }
+                return b;
+            } catch (SocketTimeoutException e) {
+                metrics.timedOut();
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    metrics.inputRead(read);
+                }
+                return read;
+            } catch (SocketTimeoutException e) {
+                metrics.timedOut();
+                throw e;
+            }
+        }
+    }
+}
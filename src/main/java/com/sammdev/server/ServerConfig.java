@@ -0,0 +1,14 @@
+package com.sammdev.server;
+
+public class ServerConfig {
+    public static final int SERVER_PORT = Integer.getInteger("server.port", 7070);
+
+    // sessions over the limit are told the server is busy and disconnected
+    public static final int SERVER_MAX_SESSIONS = Integer.getInteger("server.maxSessions", 1000);
+
+    // a session without any input for this long is closed, its customer is logged out
+    public static final int SERVER_IDLE_TIMEOUT_MS = Integer.getInteger("server.idleTimeoutMs", 300_000);
+
+    // time shutdown waits for sessions to finish the operation they are running after disconnecting them
+    public static final long SERVER_SHUTDOWN_TIMEOUT_MS = Long.getLong("server.shutdownTimeoutMs", 10_000);
+}
@@ -0,0 +1,60 @@
+package com.sammdev.server;
+
+/**
+ * Snapshot of server counters
+ */
+public class ServerStats {
+    private final int activeSessions;
+    private final long accepted, refused, completed, timedOut, steps;
+
+    public ServerStats(int activeSessions, long accepted, long refused, long completed, long timedOut, long steps) {
+        this.activeSessions = activeSessions;
+        this.accepted = accepted;
+        this.refused = refused;
+        this.completed = completed;
+        this.timedOut = timedOut;
+        this.steps = steps;
+    }
+
+    public int getActiveSessions() {
+        return activeSessions;
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * @return connections turned away because the session limit was reached
+     */
+    public long getRefused() {
+        return refused;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * @return screens of finished sessions
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    @Override
+    public String toString() {
+        return "ServerStats{" +
+                "activeSessions=" + activeSessions +
+                ", accepted=" + accepted +
+                ", refused=" + refused +
+                ", completed=" + completed +
+                ", timedOut=" + timedOut +
+                ", steps=" + steps +
+                '}';
+    }
+}
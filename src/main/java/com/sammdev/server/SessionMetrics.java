@@ -0,0 +1,83 @@
+package com.sammdev.server;
+
+import com.sammdev.service.BankingService;
+
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live counters of one network session, updated by the session thread
+ */
+public class SessionMetrics {
+    private final long id;
+    private final SocketAddress remoteAddress;
+    private final long startedAt = System.nanoTime();
+
+    private volatile long bytesRead;
+    private volatile long lastInputAt = startedAt;
+    private volatile BankingService session;
+    private volatile boolean timedOut;
+
+    public SessionMetrics(long id, SocketAddress remoteAddress) {
+        this.id = id;
+        this.remoteAddress = remoteAddress;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public SocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return screens the session went through
+     */
+    public long getSteps() {
+        BankingService current = session;
+        return current == null ? 0 : current.getSteps();
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public long getDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    }
+
+    public long getIdleMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastInputAt);
+    }
+
+    void inputRead(int bytes) {
+        bytesRead += bytes;
+        lastInputAt = System.nanoTime();
+    }
+
+    void attach(BankingService session) {
+        this.session = session;
+    }
+
+    void timedOut() {
+        timedOut = true;
+    }
+
+    @Override
+    public String toString() {
+        return "Session{" +
+                "id=" + id +
+                ", remoteAddress=" + remoteAddress +
+                ", steps=" + getSteps() +
+                ", bytesRead=" + bytesRead +
+                ", durationMs=" + getDurationMillis() +
+                ", idleMs=" + getIdleMillis() +
+                ", timedOut=" + timedOut +
+                '}';
+    }
+}
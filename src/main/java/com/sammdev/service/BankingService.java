@@ -2,186 +2,261 @@ package com.sammdev.service;
 
 import com.sammdev.db.model.Customer;
 import com.sammdev.db.model.Payment;
+import com.sammdev.db.model.PaymentPage;
+import com.sammdev.db.model.PaymentSummary;
+import com.sammdev.db.model.StandingOrder;
+import com.sammdev.db.statement.StatementStats;
 import com.sammdev.enums.*;
 import com.sammdev.exception.*;
-
-import java.math.BigInteger;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import com.sammdev.metrics.MethodTimer;
+import com.sammdev.metrics.Metrics;
+import com.sammdev.money.Money;
+import com.sammdev.security.PasswordHashing;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.InputMismatchException;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.Scanner;
 
+import static com.sammdev.ledger.LedgerConfig.LEDGER_ENABLED;
+import static com.sammdev.metrics.MetricsConfig.OPERATOR_COMMAND_CHOICE;
+import static com.sammdev.metrics.MetricsConfig.OPERATOR_COMMAND_ENABLED;
+import static com.sammdev.metrics.MetricsConfig.OPERATOR_TOP_STATEMENTS;
+import static com.sammdev.scheduler.SchedulerConfig.SCHEDULER_ENABLED;
+
+/**
+ * Console session. Screens are states of a flat loop, each handler returns the next screen
+ * instead of calling it, so a session can run for any number of steps without growing the stack.
+ */
 public class BankingService {
 
-    private final Scanner scanner = new Scanner(System.in);
+    private static final int HISTORY_PAGE_SIZE = 10;
+    private static final DateTimeFormatter PAYMENT_TIME_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+    private static final DateTimeFormatter SUMMARY_MONTH_FORMAT = DateTimeFormatter.ofPattern("MM.yyyy");
+    private static final int SUMMARY_MONTHS = 12;
+
+    private final Scanner scanner;
+    private final PrintStream out;
+    private final PrintStream err;
     private final CustomerService customerService;
+    private final PasswordHashing passwordHashing = PasswordHashing.getInstance();
+    // operator command is offered on the process console only, never to remote sessions
+    private final boolean operatorCommandAllowed;
     private Customer activeCustomer;
+    // written by the session thread only, read by monitoring
+    private volatile long steps;
 
+    /**
+     * Session on the process console
+     */
     public BankingService() {
-        customerService = CustomerService.getInstance();
+        this(System.in, System.out, System.err, true);
     }
 
     /**
-     * Generates SHA-512 hash
+     * Session on any stream, e.g. a network connection, the operator command is refused
      *
-     * @param input     String you want to be hashed
-     * @return          SHA-512 hash
+     * @param in    user input
+     * @param out   menus and results
+     * @param err   error messages, may be the same stream as out
      */
-    public String getHash(String input) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-512");
-            byte[] messageDigest = md.digest(input.getBytes());
-            BigInteger no = new BigInteger(1, messageDigest);
-            String hashtext = no.toString(16);
-            while (hashtext.length() < 32) {
-                hashtext = "0" + hashtext;
+    public BankingService(InputStream in, PrintStream out, PrintStream err) {
+        this(in, out, err, false);
+    }
+
+    private BankingService(InputStream in, PrintStream out, PrintStream err, boolean operatorCommandAllowed) {
+        this.operatorCommandAllowed = operatorCommandAllowed;
+        this.scanner = new Scanner(in, StandardCharsets.UTF_8.name());
+        this.out = out;
+        this.err = err;
+        this.customerService = CustomerService.getInstance();
+    }
+
+    /**
+     * Runs the session until the user exits or the input ends
+     */
+    public void run() {
+        Screen screen = Screen.MAIN_MENU;
+        while (screen != Screen.EXIT) {
+            try {
+                screen = show(screen);
+                steps++;
+            } catch (NoSuchElementException e) {
+                // input was closed
+                screen = Screen.EXIT;
+            } catch (RuntimeException e) {
+                err.println(e.getMessage());
+                screen = activeCustomer == null ? Screen.MAIN_MENU : Screen.CUSTOMER_MENU;
             }
-            return hashtext;
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
         }
     }
 
+    /**
+     * @return screens shown so far
+     */
+    public long getSteps() {
+        return steps;
+    }
 
-    public void defaultChoice() {
-        int choice;
+    private Screen show(Screen screen) {
+        switch (screen) {
+            case MAIN_MENU:
+                return defaultChoice();
+            case REGISTRATION:
+                return registration();
+            case LOG_IN:
+                return logIn();
+            case CUSTOMER_MENU:
+                return customerChoices();
+            case BALANCE:
+                return showBalance();
+            case WITHDRAW:
+                return withdraw();
+            case DEPOSIT:
+                return deposit();
+            case PAYMENT:
+                return payment();
+            case PAYMENT_HISTORY:
+                return showHistoryOfPayments();
+            case PAYMENT_SUMMARY:
+                return showPaymentSummary();
+            case STANDING_ORDERS:
+                return standingOrders();
+            case NEW_STANDING_ORDER:
+                return newStandingOrder();
+            case CANCEL_STANDING_ORDER:
+                return cancelStandingOrder();
+            case ACCOUNT_INFO:
+                return accountInfo();
+            case PASSWORD_CHANGE:
+                return passwordChange();
+            case OPERATOR_STATS:
+                return showOperatorStats();
+            default:
+                return Screen.EXIT;
+        }
+    }
 
-        System.out.println(
+    private Screen defaultChoice() {
+        out.println(
                 "________________________________________\n"
                         + "|Enter the choice: \n"
                         + "|Registration: (press 1)\n"
                         + "|Log in: (press 2)\n"
+                        + "|Exit: (press 3)\n"
         );
 
-        try {
-            choice = scanner.nextInt();
-            if (choice == 1) {
-                registration();
-            } else if (choice == 2) {
-                logIn();
-            } else {
-                System.out.println("Incorrect input");
-                defaultChoice();
-            }
-        } catch (Exception e) {
-            System.out.println("Please enter only available options");
-            scanner.nextLine();
-            defaultChoice();
+        Integer choice = readChoice();
+        if (choice == null) {
+            out.println("Please enter only available options");
+            return Screen.MAIN_MENU;
+        }
+        switch (choice) {
+            case 1:
+                return Screen.REGISTRATION;
+            case 2:
+                return Screen.LOG_IN;
+            case 3:
+                return Screen.EXIT;
+            case OPERATOR_COMMAND_CHOICE:
+                if (OPERATOR_COMMAND_ENABLED && operatorCommandAllowed) {
+                    return Screen.OPERATOR_STATS;
+                }
+                out.println("Incorrect input");
+                return Screen.MAIN_MENU;
+            default:
+                out.println("Incorrect input");
+                return Screen.MAIN_MENU;
         }
     }
 
-    private void registration() {
+    private Screen registration() {
         Customer newCustomer = new Customer();
-        newCustomer.setId(customerService.getHighestCustomerId() + 1);
+        newCustomer.setId(customerService.nextCustomerId());
 
         scanner.nextLine();
 
-        while(true){
+        while (true) {
             String firstName = askUserToEnterValue("first name");
-            try{
-                if(InputType.NAME.isValid(firstName)){
-                    newCustomer.setFirstName(firstName);
-                    break;
-                }else{
-                    throw new IncorrectInputFormatException("Incorrect format");
-                }
-            }catch (IncorrectInputFormatException e){
-                System.err.println(e.getMessage());
-                registration();
+            if (InputType.NAME.isValid(firstName)) {
+                newCustomer.setFirstName(firstName);
+                break;
             }
+            err.println("Incorrect format");
         }
 
-        while(true){
+        while (true) {
             String lastName = askUserToEnterValue("last name");
-            try{
-                if(InputType.NAME.isValid(lastName)){
-                    newCustomer.setLastName(lastName);
-                    break;
-                }else{
-                    throw new IncorrectInputFormatException("Incorrect format");
-                }
-            }catch (IncorrectInputFormatException e){
-                System.err.println(e.getMessage());
-                registration();
+            if (InputType.NAME.isValid(lastName)) {
+                newCustomer.setLastName(lastName);
+                break;
             }
+            err.println("Incorrect format");
         }
 
         newCustomer.setAddress(askUserToEnterValue("address"));
 
-        while(true){
+        while (true) {
             String email = askUserToEnterValue("email");
-            try{
-                if(customerService.userExists(email)){
-                    System.out.println("This email is already registered");
-                    registration();
-                }else{
-                    if(InputType.EMAIL.isValid(email)){
-                        newCustomer.setEmail(email);
-                        break;
-                    }else{
-                        throw new IncorrectInputFormatException("Incorrect email format");
-                    }
-                }
-            }catch (IncorrectInputFormatException e){
-                System.err.println(e.getMessage());
-                registration();
+            if (!InputType.EMAIL.isValid(email)) {
+                err.println("Incorrect email format");
+            } else if (customerService.userExists(email)) {
+                out.println("This email is already registered");
+            } else {
+                newCustomer.setEmail(email);
+                break;
             }
         }
 
-        while(true){
+        while (true) {
             String password = askUserToEnterValue("password");
-            try{
-                if(InputType.PASSWORD.isValid(password)){
-                    newCustomer.setPassword(getHash(password));
-                    break;
-                }else{
-                    throw new IncorrectInputFormatException("Incorrect format \n" +
-                            "Password must contain: \n" +
-                            "At least 8 chars\n" +
-                            "At least one digit\n" +
-                            "At least one lower char and one upper char\n" +
-                            "At least one char within a set of special chars (@#%$^ etc.)\n" +
-                            "Does not contain space, tab, etc.");
-                }
-            }catch (IncorrectInputFormatException e){
-                System.err.println(e.getMessage());
-                registration();
+            if (InputType.PASSWORD.isValid(password)) {
+                newCustomer.setPassword(passwordHashing.hash(password));
+                break;
             }
+            err.println("Incorrect format \n" +
+                    "Password must contain: \n" +
+                    "At least 8 chars\n" +
+                    "At least one digit\n" +
+                    "At least one lower char and one upper char\n" +
+                    "At least one char within a set of special chars (@#%$^ etc.)\n" +
+                    "Does not contain space, tab, etc.");
         }
 
-
         try {
             customerService.registerCustomer(newCustomer);
+            out.println("Registration has been successful");
         } catch (FailedToCreateRecordException e) {
-            System.err.println("Failed to register new customer: " + e.getMessage());
+            err.println("Failed to register new customer: " + e.getMessage());
         }
-
-        System.out.println("Registration has been successful");
-        defaultChoice();
+        return Screen.MAIN_MENU;
     }
 
 
-    private void logIn() {
+    private Screen logIn() {
         String email, password;
         scanner.nextLine();
         email = askUserToEnterValue("email");
-        password = getHash(askUserToEnterValue("password"));
+        password = askUserToEnterValue("password");
 
         try {
             activeCustomer = customerService.login(email.toLowerCase(), password);
-            customerChoices();
+            return Screen.CUSTOMER_MENU;
         } catch (LoginFailedException e) {
-            System.out.println("Customer not found. E-mail or password is incorrect");
-            defaultChoice();
+            out.println("Customer not found. E-mail or password is incorrect");
+        } catch (PasswordHashingException e) {
+            err.println(e.getMessage());
         }
+        return Screen.MAIN_MENU;
     }
 
-    private void customerChoices() {
-        int choice;
-
-        System.out.println(
+    private Screen customerChoices() {
+        out.println(
                 "________________________________________\n"
                         + "|Enter the choice: \n"
                         + "|View balance on your account: (press 1)\n"
@@ -191,320 +266,441 @@ public class BankingService {
                         + "|Show history of payments: (press 5)\n"
                         + "|Info about your account: (press 6)\n"
                         + "|Change password: (press 7)\n"
-                        + "|Exit: (press 8)\n"
+                        + "|Monthly summary of payments: (press 8)\n"
+                        + "|Standing orders: (press 9)\n"
+                        + "|Exit: (press 10)\n"
         );
 
-        try {
-            choice = scanner.nextInt();
-            switch (choice) {
-                case 1:
-                    showBalance();
-                    break;
-                case 2:
-                    withdraw();
-                    break;
-                case 3:
-                    deposit();
-                    break;
-                case 4:
-                    payment();
-                    break;
-                case 5:
-                    showHistoryOfPayments();
-                    break;
-                case 6:
-                    accountInfo();
-                    break;
-                case 7:
-                    passwordChange();
-                    break;
-                case 8:
-                    activeCustomer = null;
-                    System.out.println("You are logged out!");
-                    defaultChoice();
-                    break;
-                default:
-                    incorrectInput("Incorrect input2");
-                    customerChoices();
-            }
-        } catch (Exception e) {
-            scanner.nextLine();
-            System.err.println(e);
-            incorrectInput("Incorrect input3");
-            customerChoices();
+        Integer choice = readChoice();
+        if (choice == null) {
+            incorrectInput("Incorrect input");
+            return Screen.CUSTOMER_MENU;
+        }
+        switch (choice) {
+            case 1:
+                return Screen.BALANCE;
+            case 2:
+                return Screen.WITHDRAW;
+            case 3:
+                return Screen.DEPOSIT;
+            case 4:
+                return Screen.PAYMENT;
+            case 5:
+                return Screen.PAYMENT_HISTORY;
+            case 6:
+                return Screen.ACCOUNT_INFO;
+            case 7:
+                return Screen.PASSWORD_CHANGE;
+            case 8:
+                return Screen.PAYMENT_SUMMARY;
+            case 9:
+                return Screen.STANDING_ORDERS;
+            case 10:
+                activeCustomer = null;
+                out.println("You are logged out!");
+                return Screen.MAIN_MENU;
+            default:
+                incorrectInput("Incorrect input");
+                return Screen.CUSTOMER_MENU;
         }
     }
 
-    private void withdraw() {
-        double amount = 0;
-        System.out.println("Please enter the amount of money you want to withdraw: ");
-        try {
-            amount = scanner.nextDouble();
-        } catch (Exception e) {
-            scanner.nextLine();
-            incorrectInput("You entered invalid input");
-            withdraw();
+    private Screen withdraw() {
+        out.println("Please enter the amount of money you want to withdraw: ");
+        Long amount = readAmount();
+        if (amount == null) {
+            return retryOrBack(Screen.WITHDRAW, "You entered invalid input");
         }
-        if (amount > 0) {
-            try {
-                customerService.withdraw(activeCustomer, amount);
-                System.out.println("Withdraw has been successful");
-            } catch (RecordNotFoundException e) {
-                System.err.println("Failed to make withdrawal, so sad :(");
-            } catch (NotEnoughMoneyException e) {
-                System.out.println("Not enough money on your account");
-            } finally {
-                customerChoices();
-            }
-        } else {
-            incorrectInput("Selection must be higher than 0");
-            withdraw();
+        if (amount <= 0) {
+            return retryOrBack(Screen.WITHDRAW, "Selection must be higher than 0");
         }
-    }
-
-    private void deposit() {
-        double amount = 0;
-
-        System.out.println("Please enter the amount you would like to deposit: ");
 
         try {
-            amount = scanner.nextDouble();
-        } catch (Exception e) {
-            scanner.nextLine();
-            incorrectInput("incorrect deposit input");
-            deposit();
+            customerService.withdraw(activeCustomer, amount);
+            out.println("Withdraw has been successful");
+        } catch (RecordNotFoundException e) {
+            err.println("Failed to make withdrawal, so sad :(");
+        } catch (NotEnoughMoneyException e) {
+            out.println("Not enough money on your account");
+        } catch (FailedToUpdateRecordException e) {
+            err.println(e.getMessage());
         }
-        if (amount > 0) {
-            try {
-                customerService.deposit(activeCustomer, amount);
-                System.out.println("Deposit has been successful!");
-            } catch (RecordNotFoundException e) {
-                System.err.println("Failed to make deposit, fnuk :(");
-            } finally {
-                customerChoices();
-            }
+        return Screen.CUSTOMER_MENU;
+    }
 
-        } else {
-            incorrectInput("incorrect deposit amount");
-            deposit();
+    private Screen deposit() {
+        out.println("Please enter the amount you would like to deposit: ");
+        Long amount = readAmount();
+        if (amount == null) {
+            return retryOrBack(Screen.DEPOSIT, "incorrect deposit input");
+        }
+        if (amount <= 0) {
+            return retryOrBack(Screen.DEPOSIT, "incorrect deposit amount");
         }
+
+        try {
+            customerService.deposit(activeCustomer, amount);
+            out.println("Deposit has been successful!");
+        } catch (RecordNotFoundException e) {
+            err.println("Failed to make deposit, fnuk :(");
+        } catch (FailedToUpdateRecordException e) {
+            err.println(e.getMessage());
+        }
+        return Screen.CUSTOMER_MENU;
     }
 
 
-    private void showBalance() {
+    private Screen showBalance() {
         try {
-            System.out.println(
+            out.println(
                     "Your balance is: " +
-                            customerService.getCurrentBalance(activeCustomer)
+                            Money.format(customerService.getCurrentBalance(activeCustomer))
             );
         } catch (RecordNotFoundException e) {
-            System.err.println("Failed to load the balance :(");
-        } finally {
-            customerChoices();
+            err.println("Failed to load the balance :(");
         }
+        return Screen.CUSTOMER_MENU;
     }
 
-    private void payment() {
-        Customer reciever = null;
-        int enteredRecieverId;
-        double amount = 0;
-
-        System.out.println("Enter reciever's ID: ");
+    private Screen payment() {
+        out.println("Enter reciever's ID: ");
 
-        try {
-            //read receiver's id
-            enteredRecieverId = scanner.nextInt();
-            if (enteredRecieverId == activeCustomer.getId()) {
-                incorrectInput("You can not enter your own id");
-                payment();
-            }
+        //read receiver's id
+        Integer enteredRecieverId = readChoice();
+        if (enteredRecieverId == null) {
+            return retryOrBack(Screen.PAYMENT, "Incorrectly selected receiver's ID!");
+        }
+        if (enteredRecieverId == activeCustomer.getId()) {
+            return retryOrBack(Screen.PAYMENT, "You can not enter your own id");
+        }
+        // one lookup, usually answered by the name cache
+        Optional<String> recieverName = customerService.findDisplayName(enteredRecieverId);
+        if (!recieverName.isPresent()) {
+            return retryOrBack(Screen.PAYMENT, "No user with such ID");
+        }
 
-            try {
-                if (customerService.userExists(enteredRecieverId)) {
-                    reciever = customerService.getCustomer(enteredRecieverId);
-                }else{
-                    throw new RecordNotFoundException("No user with such ID");
-                }
-            } catch (RecordNotFoundException e) {
-                incorrectInput(e.getMessage());
-                payment();
-            }
+        out.println("Enter the amount you want to send: ");
+        Long amount = readAmount();
+        if (amount == null) {
+            return retryOrBack(Screen.PAYMENT, "Invalid amount!");
+        }
+        if (amount <= 0) {
+            return retryOrBack(Screen.PAYMENT, "Please select a valid amount!");
+        }
 
-        } catch (Exception e) {
-            scanner.nextLine();
-            incorrectInput("Incorrectly selected receiver's ID!");
-            payment();
+        try {
+            customerService.transfer(activeCustomer, enteredRecieverId, amount);
+            out.println("Payment to " + recieverName.get() + " has been successful!");
+        } catch (RecordNotFoundException e) {
+            err.println("Daco zle");
+        } catch (NotEnoughMoneyException e) {
+            return retryOrBack(Screen.PAYMENT, "Not enough money on your account");
+        } catch (FailedToUpdateRecordException e) {
+            err.println(e.getMessage());
         }
+        return Screen.CUSTOMER_MENU;
+    }
 
 
-        System.out.println("Enter the amount you want to send: ");
+    private Screen showHistoryOfPayments() {
+        out.println(
+                "________________________________________\n"
+                        + "|Enter the choice: \n"
+                        + "|History of sent payments: (press 1)\n"
+                        + "|History of received payments: (press 2)");
 
+        Integer choice = readChoice();
+        if (choice == null) {
+            return retryOrBack(Screen.PAYMENT_HISTORY, "Invalid input");
+        }
         try {
-            amount = scanner.nextDouble();
-        } catch (Exception e) {
-            scanner.nextLine();
-            incorrectInput("Invalid amount!");
-            payment();
+            paymentsPrinter(PaymentHistoryType.fromValue(choice));
+        } catch (InputErrorException e) {
+            return retryOrBack(Screen.PAYMENT_HISTORY, "Invalid input");
         }
+        return Screen.CUSTOMER_MENU;
+    }
 
-        if (amount > 0) {
-            try {
-                customerService.transfer(activeCustomer, reciever, amount);
-                customerService.registerPayment(activeCustomer, reciever, amount, getTime("HH:mm"), getTime("dd.MM.yyyy"));
-                System.out.println("Payment has been successful!");
-                customerChoices();
-            } catch (RecordNotFoundException e) {
-                System.err.println("Daco zle");
-                customerChoices();
-            } catch (NotEnoughMoneyException e) {
-                incorrectInput("Not enough money on your account");
-                payment();
-            }
-        } else {
-            incorrectInput("Please select a valid amount!");
-            payment();
+    private Screen showPaymentSummary() {
+        List<PaymentSummary> summaries = customerService.getMonthlySummaries(activeCustomer, SUMMARY_MONTHS);
+        if (summaries.isEmpty()) {
+            out.println("No payments in the last " + SUMMARY_MONTHS + " months");
         }
+        for (PaymentSummary summary : summaries) {
+            out.println(
+                    "________________________________________\n"
+                            + "|Month: " + summary.getMonth().format(SUMMARY_MONTH_FORMAT) + "\n"
+                            + "|Sent: " + Money.format(summary.getSentTotal()) + " in " + summary.getSentCount() + " payments\n"
+                            + "|Received: " + Money.format(summary.getReceivedTotal()) + " in " + summary.getReceivedCount() + " payments\n"
+            );
+        }
+        return Screen.CUSTOMER_MENU;
     }
 
-
-    public void showHistoryOfPayments() {
-        int choice;
-
-        System.out.println(
+    private Screen standingOrders() {
+        List<StandingOrder> orders = customerService.getStandingOrders(activeCustomer);
+        if (orders.isEmpty()) {
+            out.println("No standing orders");
+        }
+        for (StandingOrder order : orders) {
+            out.println(
+                    "________________________________________\n"
+                            + "|Standing order: " + order.getId() + "\n"
+                            + "|Receiver's id: " + order.getReceiverId() + "\n"
+                            + "|Amount: " + Money.format(order.getAmount()) + " every " + order.getPeriodMonths() + " months\n"
+                            + "|Next payment: " + order.getNextExecution().format(PAYMENT_TIME_FORMAT) + "\n"
+                            + "|Last payment: " + (order.getLastExecutedAt() == null ? "none"
+                                    : order.getLastExecutedAt().format(PAYMENT_TIME_FORMAT) + " " + order.getLastStatus()) + "\n"
+            );
+        }
+        out.println(
                 "________________________________________\n"
                         + "|Enter the choice: \n"
-                        + "|History of sent payments: (press 1)\n"
-                        + "|History of received payments: (press 2)");
-        try {
-            choice = scanner.nextInt();
+                        + "|New standing order: (press 1)\n"
+                        + "|Cancel a standing order: (press 2)\n"
+                        + "|Back: (press 3)\n"
+        );
 
-            try {
-                paymentsPrinter(PaymentHistoryType.fromValue(choice));
-            } catch (InputErrorException e) {
-                System.err.println(e);
-                scanner.nextLine();
-                incorrectInput("Invalid input");
-                showHistoryOfPayments();
+        Integer choice = readChoice();
+        if (choice == null) {
+            return retryOrBack(Screen.STANDING_ORDERS, "Invalid input");
+        }
+        switch (choice) {
+            case 1:
+                return Screen.NEW_STANDING_ORDER;
+            case 2:
+                return Screen.CANCEL_STANDING_ORDER;
+            case 3:
+                return Screen.CUSTOMER_MENU;
+            default:
+                return retryOrBack(Screen.STANDING_ORDERS, "Invalid input");
+        }
+    }
+
+    private Screen newStandingOrder() {
+        out.println("Enter reciever's ID: ");
+        Integer receiverId = readChoice();
+        if (receiverId == null) {
+            return retryOrBack(Screen.NEW_STANDING_ORDER, "Incorrectly selected receiver's ID!");
+        }
+        if (receiverId == activeCustomer.getId()) {
+            return retryOrBack(Screen.NEW_STANDING_ORDER, "You can not enter your own id");
+        }
+        Optional<String> receiverName = customerService.findDisplayName(receiverId);
+        if (!receiverName.isPresent()) {
+            return retryOrBack(Screen.NEW_STANDING_ORDER, "No user with such ID");
+        }
+
+        out.println("Enter the amount of every payment: ");
+        Long amount = readAmount();
+        if (amount == null || amount <= 0) {
+            return retryOrBack(Screen.NEW_STANDING_ORDER, "Please select a valid amount!");
+        }
+
+        out.println("Pay every how many months (1-12): ");
+        Integer periodMonths = readChoice();
+        if (periodMonths == null || periodMonths < 1 || periodMonths > 12) {
+            return retryOrBack(Screen.NEW_STANDING_ORDER, "Please select 1 to 12 months!");
+        }
+
+        try {
+            StandingOrder order = customerService.createStandingOrder(activeCustomer, receiverId, amount, periodMonths);
+            out.println("Standing order to " + receiverName.get() + " has been created, the first payment is scheduled for "
+                    + order.getFirstExecution().format(PAYMENT_TIME_FORMAT));
+            if (!SCHEDULER_ENABLED) {
+                out.println("Warning: standing orders are not paid by this application while its scheduler is disabled");
             }
-        } catch (Exception e) {
-            System.err.println(e);
-            scanner.nextLine();
-            incorrectInput("Invalid input");
-            showHistoryOfPayments();
+        } catch (FailedToCreateRecordException e) {
+            err.println(e.getMessage());
         }
+        return Screen.STANDING_ORDERS;
     }
 
-    public void accountInfo() throws RecordNotFoundException {
-        System.out.println(
-                "______________________________\n"
-                        + "|Your name: " + activeCustomer.getFirstName() + ' ' + activeCustomer.getLastName() + "\n"
-                        + "|Your email: " + activeCustomer.getEmail() + "\n"
-                        + "|Your id: " + activeCustomer.getId() + "\n"
-                        + "|Your balance: " + customerService.getCurrentBalance(activeCustomer)
-        );
-        customerChoices();
+    private Screen cancelStandingOrder() {
+        out.println("Enter the standing order to cancel: ");
+        Integer id = readChoice();
+        if (id == null) {
+            return retryOrBack(Screen.CANCEL_STANDING_ORDER, "Invalid input");
+        }
+        if (!customerService.cancelStandingOrder(activeCustomer, id)) {
+            return retryOrBack(Screen.CANCEL_STANDING_ORDER, "You have no standing order with such id");
+        }
+        out.println("Standing order has been cancelled");
+        return Screen.STANDING_ORDERS;
     }
 
-    public void passwordChange() {
+    private Screen accountInfo() {
+        try {
+            out.println(
+                    "______________________________\n"
+                            + "|Your name: " + activeCustomer.getFirstName() + ' ' + activeCustomer.getLastName() + "\n"
+                            + "|Your email: " + activeCustomer.getEmail() + "\n"
+                            + "|Your id: " + activeCustomer.getId() + "\n"
+                            + "|Your balance: " + Money.format(customerService.getCurrentBalance(activeCustomer))
+            );
+        } catch (RecordNotFoundException e) {
+            err.println("Failed to load the balance :(");
+        }
+        return Screen.CUSTOMER_MENU;
+    }
+
+    private Screen passwordChange() {
         String oldPassword, newPassword;
 
         scanner.nextLine();
 
-        System.out.println("Enter your old password: ");
+        out.println("Enter your old password: ");
         oldPassword = scanner.nextLine();
 
-        if (getHash(oldPassword).equals(activeCustomer.getPassword())) {
-            System.out.println("Enter your new password: ");
-            newPassword = scanner.nextLine();
-
-            if (newPassword.length() >= 8) {
-                String newPasswordHash = getHash(newPassword);
-                try {
-                    customerService.changePassword(activeCustomer, newPasswordHash);
-                    System.out.println("Password has been changed! You are logged out.");
-                    activeCustomer = null;
-                } catch (Exception e) {
-                    System.err.println(e.getMessage());
-                } finally {
-                    defaultChoice();
-                }
-            } else {
-                incorrectInput("Password must have at least 8 characters");
-                customerChoices();
-            }
-        } else {
-            incorrectInput("Your password is incorrect");
-            passwordChange();
+        if (!passwordHashing.verify(oldPassword, activeCustomer.getPassword())) {
+            return retryOrBack(Screen.PASSWORD_CHANGE, "Your password is incorrect");
+        }
+
+        out.println("Enter your new password: ");
+        newPassword = scanner.nextLine();
+
+        if (newPassword.length() < 8) {
+            incorrectInput("Password must have at least 8 characters");
+            return Screen.CUSTOMER_MENU;
+        }
+
+        String newPasswordHash = passwordHashing.hash(newPassword);
+        try {
+            customerService.changePassword(activeCustomer, newPasswordHash);
+            out.println("Password has been changed! You are logged out.");
+            activeCustomer = null;
+            return Screen.MAIN_MENU;
+        } catch (Exception e) {
+            err.println(e.getMessage());
+            return Screen.CUSTOMER_MENU;
         }
     }
 
     /**
-     * Prints the list of payments
+     * Prints method latencies, failures and the state of pool, caches and transfers for operators
+     */
+    private Screen showOperatorStats() {
+        Metrics metrics = Metrics.getInstance();
+        out.println("________________________________________");
+        out.println("Methods, slowest p99 first:");
+        for (MethodTimer timer : metrics.getTimers()) {
+            out.println("  " + timer);
+        }
+        out.println("Failures: " + metrics.getFailures());
+        out.println("Statements, most total time first:");
+        List<StatementStats> statements = customerService.getStatementStats();
+        for (StatementStats statement : statements.subList(0, Math.min(OPERATOR_TOP_STATEMENTS, statements.size()))) {
+            out.println("  " + statement);
+        }
+        out.println(customerService.getPoolMetrics());
+        out.println("Balance cache: " + customerService.getBalanceCacheStats());
+        out.println("Name cache: " + customerService.getNameCacheStats());
+        out.println(customerService.getTransferStats());
+        if (LEDGER_ENABLED) {
+            out.println(customerService.getLedgerStats());
+        }
+        return Screen.MAIN_MENU;
+    }
+
+    /**
+     * Prints payments page by page
      *
      * @param paymentHistoryType    sent or received payments
      */
+    private void paymentsPrinter(PaymentHistoryType paymentHistoryType) {
+        PaymentPage page = customerService.getPaymentsPage(activeCustomer, paymentHistoryType, null, HISTORY_PAGE_SIZE);
+        if (page.getPayments().isEmpty()) {
+            out.println("No payments yet");
+        }
 
-    public void paymentsPrinter(PaymentHistoryType paymentHistoryType){
-        List<Payment> payments = customerService.getListOfPayments(activeCustomer, paymentHistoryType);
-        if (payments.size() > 0) {
-            for (Payment payment : payments) {
-                System.out.println(
+        while (!page.getPayments().isEmpty()) {
+            for (Payment payment : page.getPayments()) {
+                out.println(
                         "________________________________________\n"
                                 + "|Sender's id: " + payment.getSenderId() + "\n"
                                 + "|Sender's name: " + payment.getSender() + "\n"
                                 + "|Receiver's id: " + payment.getRecieverId() + "\n"
                                 + "|Receiver's name: " + payment.getReceiver() + "\n"
-                                + "|Sent amount: " + payment.getAmount() + "\n"
-                                + "|Payment time: " + payment.getTime() + "\n"
+                                + "|Sent amount: " + Money.format(payment.getAmount()) + "\n"
+                                + "|Payment time: " + payment.getTime().format(PAYMENT_TIME_FORMAT) + "\n"
                 );
             }
-        } else {
-            System.out.println("No payments yet");
+            if (!page.hasNext() || !askForNextPage()) {
+                break;
+            }
+            page = customerService.getPaymentsPage(activeCustomer, paymentHistoryType, page.getNext(), HISTORY_PAGE_SIZE);
         }
-        customerChoices();
     }
 
     /**
-     * Allows user to decide, where to continue if incorrect input is entered
+     * @return true if user wants to see the next page of payments
+     */
+    private boolean askForNextPage() {
+        out.println(
+                "Next page (press 1)\n"
+                        + "Back (press 2)");
+        Integer choice = readChoice();
+        return choice != null && choice == 1;
+    }
+
+    /**
+     * Shows the error and lets the user decide whether to repeat the screen or go back to the menu
      *
+     * @param screen    screen to repeat
      * @param error     error message
+     * @return          screen or the customer menu
      */
+    private Screen retryOrBack(Screen screen, String error) {
+        return incorrectInput(error) ? screen : Screen.CUSTOMER_MENU;
+    }
 
-    public void incorrectInput(String error) {
-        System.err.println(error);
-
-        System.out.println(
-                "Try again (press 1)\n"
-                        + "Exit (press 2)");
-
-        int choice;
-        try {
-            choice = scanner.nextInt();
-
-            if (choice == 1) {
-                //continues
-            } else if (choice == 2) {
-                customerChoices();
-            } else {
-                incorrectInput("Incorrect choice!!");
+    /**
+     * Allows user to decide, where to continue if incorrect input is entered
+     *
+     * @param error     error message
+     * @return          true to try again, false to go back to the menu
+     */
+    private boolean incorrectInput(String error) {
+        err.println(error);
+        while (true) {
+            out.println(
+                    "Try again (press 1)\n"
+                            + "Exit (press 2)");
+
+            Integer choice = readChoice();
+            if (choice != null && choice == 1) {
+                return true;
+            } else if (choice != null && choice == 2) {
+                return false;
             }
+            err.println("Incorrect choice!");
+        }
+    }
 
-        } catch (Exception e) {
+    /**
+     * @return entered number, null if something else was entered
+     * @throws NoSuchElementException if the input was closed
+     */
+    private Integer readChoice() {
+        try {
+            return scanner.nextInt();
+        } catch (InputMismatchException e) {
             scanner.nextLine();
-            incorrectInput("Incorrect choice!");
+            return null;
         }
     }
 
     /**
-     * Get current time of action
-     *
-     * @param pattern   time format you want to receive
-     * @return          current time
+     * @return entered amount in minor units, null if it is not a valid amount
+     * @throws NoSuchElementException if the input was closed
      */
-
-    public String getTime(String pattern) {
-        SimpleDateFormat formatter = new SimpleDateFormat(pattern);
-        return formatter.format(new Date());
+    private Long readAmount() {
+        try {
+            return Money.parse(scanner.next());
+        } catch (IncorrectInputFormatException e) {
+            scanner.nextLine();
+            return null;
+        }
     }
 
     /**
@@ -514,7 +710,7 @@ public class BankingService {
      * @return                  user input
      */
     private String askUserToEnterValue(String requiredField) {
-        System.out.println(
+        out.println(
                 "________________________________________\n"
                         + "|Enter your " + requiredField + ": \n"
         );
@@ -1,25 +1,88 @@
 package com.sammdev.service;
 
+import com.sammdev.db.cache.CacheStats;
+import com.sammdev.db.cache.EmailIndex;
+import com.sammdev.db.connection.ConnectionProvider;
+import com.sammdev.db.connection.PoolMetrics;
 import com.sammdev.db.dao.BalanceDao;
 import com.sammdev.db.dao.CustomerDao;
+import com.sammdev.db.dao.IdAllocator;
 import com.sammdev.db.dao.PaymentDao;
+import com.sammdev.db.dao.PaymentSummaryDao;
+import com.sammdev.db.dao.PaymentWriter;
+import com.sammdev.db.dao.StandingOrderDao;
+import com.sammdev.db.dao.TransferDao;
+import com.sammdev.db.dao.TransferStats;
+import com.sammdev.db.model.Balance;
 import com.sammdev.db.model.Customer;
+import com.sammdev.db.model.CustomerAuth;
 import com.sammdev.db.model.Payment;
+import com.sammdev.db.model.PaymentCursor;
+import com.sammdev.db.model.PaymentPage;
+import com.sammdev.db.model.PaymentSummary;
+import com.sammdev.db.model.StandingOrder;
+import com.sammdev.db.model.TransferBatchResult;
+import com.sammdev.db.model.TransferItem;
+import com.sammdev.db.statement.StatementRegistry;
+import com.sammdev.db.statement.StatementStats;
 import com.sammdev.enums.PaymentHistoryType;
+import com.sammdev.enums.TransferItemStatus;
 import com.sammdev.exception.FailedToCreateRecordException;
 import com.sammdev.exception.FailedToUpdateRecordException;
 import com.sammdev.exception.LoginFailedException;
 import com.sammdev.exception.NotEnoughMoneyException;
 import com.sammdev.exception.RecordNotFoundException;
+import com.sammdev.ledger.Ledger;
+import com.sammdev.ledger.LedgerStats;
+import com.sammdev.metrics.MethodTimer;
+import com.sammdev.metrics.Metrics;
+import com.sammdev.security.PasswordHashing;
 
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+
+import static com.sammdev.ledger.LedgerConfig.LEDGER_ENABLED;
 
 public class CustomerService {
 
     private final CustomerDao customerDao = CustomerDao.getInstance();
     private final BalanceDao balanceDao = BalanceDao.getInstance();
     private final PaymentDao paymentDAO = PaymentDao.getInstance();
+    private final PaymentSummaryDao paymentSummaryDao = PaymentSummaryDao.getInstance();
+    private final StandingOrderDao standingOrderDao = StandingOrderDao.getInstance();
+    private final TransferDao transferDao = TransferDao.getInstance();
+    private final EmailIndex emailIndex = EmailIndex.getInstance();
+    private final PasswordHashing passwordHashing = PasswordHashing.getInstance();
+    private final PaymentWriter paymentWriter = PaymentWriter.getInstance();
+    private final Ledger ledger = Ledger.getInstance();
+
+    // stale cached balance costs one retry, more retries mean the account is under heavy contention
+    private static final int MAX_BALANCE_UPDATE_ATTEMPTS = 5;
+
+    private static final Metrics metrics = Metrics.getInstance();
+    private static final MethodTimer LOGIN_TIMER = metrics.timer("customerService.login");
+    private static final MethodTimer USER_EXISTS_BY_EMAIL_TIMER = metrics.timer("customerService.userExistsByEmail");
+    private static final MethodTimer USER_EXISTS_BY_ID_TIMER = metrics.timer("customerService.userExistsById");
+    private static final MethodTimer REGISTER_TIMER = metrics.timer("customerService.registerCustomer");
+    private static final MethodTimer WITHDRAW_TIMER = metrics.timer("customerService.withdraw");
+    private static final MethodTimer DEPOSIT_TIMER = metrics.timer("customerService.deposit");
+    private static final MethodTimer TRANSFER_TIMER = metrics.timer("customerService.transfer");
+    private static final MethodTimer TRANSFER_BATCH_TIMER = metrics.timer("customerService.transferBatch");
+    private static final MethodTimer CHANGE_PASSWORD_TIMER = metrics.timer("customerService.changePassword");
+    private static final MethodTimer GET_BALANCE_TIMER = metrics.timer("customerService.getCurrentBalance");
+    private static final MethodTimer NEXT_CUSTOMER_ID_TIMER = metrics.timer("customerService.nextCustomerId");
+    private static final MethodTimer PAYMENTS_PAGE_TIMER = metrics.timer("customerService.getPaymentsPage");
+    private static final MethodTimer MONTHLY_SUMMARIES_TIMER = metrics.timer("customerService.getMonthlySummaries");
+    private static final MethodTimer GET_CUSTOMER_TIMER = metrics.timer("customerService.getCustomer");
+    private static final MethodTimer AUTHENTICATE_TIMER = metrics.timer("customerService.authenticate");
+    private static final MethodTimer FIND_DISPLAY_NAME_TIMER = metrics.timer("customerService.findDisplayName");
+    private static final MethodTimer CREATE_STANDING_ORDER_TIMER = metrics.timer("customerService.createStandingOrder");
+    private static final MethodTimer STANDING_ORDERS_TIMER = metrics.timer("customerService.getStandingOrders");
+    private static final MethodTimer CANCEL_STANDING_ORDER_TIMER = metrics.timer("customerService.cancelStandingOrder");
 
     private static final CustomerService customerService = new CustomerService();
     private CustomerService(){}
@@ -30,23 +93,63 @@ public class CustomerService {
     /**
      * Finds a customer by matching his username (email) and password
      *
+     * Hashes of an older format or cost are upgraded after a successful login.
+     *
      * @param email    login username
-     * @param password user password
+     * @param password user password, not hashed
      * @return
      * @throws LoginFailedException failed to login user
      */
     public Customer login(String email, String password) throws LoginFailedException {
-        try {
-            Customer user = customerDao.findCustomer(email);
-            if (user.getPassword().equals(password)) {
+        return LOGIN_TIMER.time(() -> {
+            // we do not want to show user why his login failed, we do not want to expose our internal logic
+            Customer user = customerDao.findByEmail(email)
+                    .orElseThrow(() -> new LoginFailedException("Failed to login user"));
+            if (user.getPassword() != null && passwordHashing.verify(password, user.getPassword())) {
+                if (passwordHashing.needsRehash(user.getPassword())) {
+                    upgradePasswordHash(user, password);
+                }
                 return user;
             } else {
                 throw new LoginFailedException("Failed to authenticate user");
             }
-        } catch (RecordNotFoundException e) {
+        });
+    }
+
+    /**
+     * Checks username (email) and password without loading the customer's profile,
+     * for callers that only need to know who logged in
+     *
+     * @param email    login username
+     * @param password user password, not hashed
+     * @return id of the authenticated customer
+     * @throws LoginFailedException failed to login user
+     */
+    public int authenticate(String email, String password) throws LoginFailedException {
+        return AUTHENTICATE_TIMER.time(() -> {
+            CustomerAuth auth = customerDao.findAuth(email)
+                    .orElseThrow(() -> new LoginFailedException("Failed to login user"));
+            if (auth.getPassword() == null || !passwordHashing.verify(password, auth.getPassword())) {
+                throw new LoginFailedException("Failed to authenticate user");
+            }
+            if (passwordHashing.needsRehash(auth.getPassword())) {
+                try {
+                    customerDao.updatePassword(auth.getId(), passwordHashing.hash(password));
+                } catch (RuntimeException e) {
+                    // the old hash still works, the upgrade is tried again on the next login
+                    System.err.println(e.getMessage());
+                }
+            }
+            return auth.getId();
+        });
+    }
+
+    private void upgradePasswordHash(Customer user, String password) {
+        try {
+            changePassword(user, passwordHashing.hash(password));
+        } catch (RuntimeException e) {
+            // the old hash still works, the upgrade is tried again on the next login
             System.err.println(e.getMessage());
-            // we do not want to show user why his login failed, we do not want to expose our internal logic
-            throw new LoginFailedException("Failed to login user");
         }
     }
 
@@ -58,12 +161,10 @@ public class CustomerService {
      * @return true if user already exists
      */
     public boolean userExists(String email) {
-        try {
-            customerDao.findCustomer(email);
-            return true;
-        } catch (RecordNotFoundException e) {
-            return false;
-        }
+        return USER_EXISTS_BY_EMAIL_TIMER.time(() -> {
+            // definite negatives from the bloom filter skip the database entirely
+            return emailIndex.mightContain(email) && customerDao.emailExists(email);
+        });
     }
 
     /**
@@ -73,12 +174,9 @@ public class CustomerService {
      * @return      true if there is a user with such id
      */
     public boolean userExists(int id) {
-        try {
-            customerDao.findCustomer(id);
-            return true;
-        } catch (RecordNotFoundException e) {
-            return false;
-        }
+        return USER_EXISTS_BY_ID_TIMER.time(() -> {
+            return customerDao.customerExists(id);
+        });
     }
 
 
@@ -88,13 +186,15 @@ public class CustomerService {
      * @param newCustomer customer information
      */
     public void registerCustomer(Customer newCustomer) throws FailedToCreateRecordException {
-        try {
-            customerDao.createCustomer(newCustomer);
-            balanceDao.createBalance(newCustomer.getId(), 0);
-        } catch (FailedToCreateRecordException e) {
-            System.err.println(e.getMessage());
-            throw e;
-        }
+        REGISTER_TIMER.run(() -> {
+            try {
+                customerDao.createCustomer(newCustomer);
+                balanceDao.createBalance(newCustomer.getId(), 0);
+            } catch (FailedToCreateRecordException e) {
+                System.err.println(e.getMessage());
+                throw e;
+            }
+        });
     }
 
 
@@ -102,55 +202,186 @@ public class CustomerService {
      * Checks if the customer has enough money and performs a withdrawal
      *
      * @param customer customer
-     * @param amount   money to withdraw
+     * @param amount   money to withdraw, in minor units
      * @throws RecordNotFoundException there is no such record in balance table
      * @throws NotEnoughMoneyException customer does not have enough cash
      */
-    public void withdraw(Customer customer, double amount) throws RecordNotFoundException, NotEnoughMoneyException {
-        Double customerBalance = balanceDao.getBalance(customer.getId());
-        if (amount > customerBalance) {
-            throw new NotEnoughMoneyException("Customer does not have enough money!");
-        }
-        //subtracts money from your account
-        balanceDao.updateBalance(customer.getId(), customerBalance - amount);
+    public void withdraw(Customer customer, long amount) throws RecordNotFoundException, NotEnoughMoneyException {
+        WITHDRAW_TIMER.<RecordNotFoundException, NotEnoughMoneyException>run(() -> {
+            if (LEDGER_ENABLED) {
+                ledger.withdraw(customer.getId(), amount);
+                return;
+            }
+            for (int attempt = 1; attempt <= MAX_BALANCE_UPDATE_ATTEMPTS; attempt++) {
+                Balance customerBalance = balanceDao.getBalance(customer.getId());
+                if (amount > customerBalance.getAmount()) {
+                    // the cached amount may be behind a deposit made by another process
+                    customerBalance = balanceDao.loadBalance(customer.getId());
+                }
+                if (amount > customerBalance.getAmount()) {
+                    throw new NotEnoughMoneyException("Customer does not have enough money!");
+                }
+                //subtracts money from your account, fails if the balance changed since it was read
+                if (balanceDao.updateBalance(customerBalance, customerBalance.getAmount() - amount)) {
+                    return;
+                }
+            }
+            throw new FailedToUpdateRecordException("Balance is being changed by someone else, try again later!");
+        });
     }
 
     /**
      * Adds money to customer's account
      *
      * @param customer customer
-     * @param amount   money
+     * @param amount   money, in minor units
      * @throws RecordNotFoundException there is no such record on the balance table
      */
-    public void deposit(Customer customer, double amount) throws RecordNotFoundException {
-        Double balance = balanceDao.getBalance(customer.getId());
-        balanceDao.updateBalance(customer.getId(), balance + amount);
+    public void deposit(Customer customer, long amount) throws RecordNotFoundException {
+        DEPOSIT_TIMER.run(() -> {
+            if (LEDGER_ENABLED) {
+                ledger.deposit(customer.getId(), amount);
+                return;
+            }
+            for (int attempt = 1; attempt <= MAX_BALANCE_UPDATE_ATTEMPTS; attempt++) {
+                Balance balance = balanceDao.getBalance(customer.getId());
+                if (balanceDao.updateBalance(balance, Math.addExact(balance.getAmount(), amount))) {
+                    return;
+                }
+            }
+            throw new FailedToUpdateRecordException("Balance is being changed by someone else, try again later!");
+        });
     }
 
     /**
-     * Transfers money from one user to another
+     * Transfers money from one user to another and records the payment, all in one transaction
      *
-     * @param sender   who sends money
-     * @param receiver receiver of the money
-     * @param amount   amount
+     * Only the receiver's id is needed, an unknown receiver is reported by the balance lookup.
+     *
+     * @param sender     who sends money
+     * @param receiverId id of the receiver of the money
+     * @param amount     amount in minor units
      * @throws RecordNotFoundException record wes not found in db
      * @throws NotEnoughMoneyException amount exceeded senders balance
      */
-    public void transfer(Customer sender, Customer receiver, double amount) throws RecordNotFoundException, NotEnoughMoneyException {
-        Double senderBalance = balanceDao.getBalance(sender.getId());
-        Double targetBalance = balanceDao.getBalance(receiver.getId());
+    public void transfer(Customer sender, int receiverId, long amount) throws RecordNotFoundException, NotEnoughMoneyException {
+        TRANSFER_TIMER.<RecordNotFoundException, NotEnoughMoneyException>run(() -> {
+            // DATETIME keeps whole seconds, the history cursor must see the same value that was stored
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+            if (LEDGER_ENABLED) {
+                // balances are not in a database transaction, so the payment row is written in the background too
+                int paymentId = IdAllocator.payments().nextId();
+                ledger.transfer(sender.getId(), receiverId, amount);
+                paymentWriter.enqueue(new Payment(paymentId, sender.getId(), null, receiverId, null, amount, now));
+                return;
+            }
+            transferDao.transfer(sender.getId(), receiverId, amount, now);
+        });
+    }
 
-        //sender must have enough money
-        if (amount > senderBalance) {
+    /**
+     * Pays many receivers from one account, e.g. a payroll run. The total is checked against the sender's balance
+     * once, then the payments are applied in a few batched transactions.
+     *
+     * @param sender   who sends money
+     * @param items    receivers and amounts in minor units
+     * @return outcome of every item, in the order of the items
+     * @throws RecordNotFoundException sender's balance record was not found in db
+     * @throws NotEnoughMoneyException total of the batch exceeded senders balance, nothing was transferred
+     */
+    public TransferBatchResult transferBatch(Customer sender, List<TransferItem> items)
+            throws RecordNotFoundException, NotEnoughMoneyException {
+        return TRANSFER_BATCH_TIMER.<TransferBatchResult, RecordNotFoundException, NotEnoughMoneyException>time(() -> {
+            // DATETIME keeps whole seconds, the history cursor must see the same value that was stored
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+            if (LEDGER_ENABLED) {
+                return ledgerTransferBatch(sender.getId(), items, now);
+            }
+            return transferDao.transferBatch(sender.getId(), items, now);
+        });
+    }
+
+    /**
+     * Same checks as TransferDao.transferBatch against the in-memory ledger, where every item is a cheap transfer
+     */
+    private TransferBatchResult ledgerTransferBatch(int senderId, List<TransferItem> items, LocalDateTime now)
+            throws RecordNotFoundException, NotEnoughMoneyException {
+        long total = 0;
+        for (TransferItem item : items) {
+            if (item.getAmount() > 0 && item.getReceiverId() != senderId) {
+                total = Math.addExact(total, item.getAmount());
+            }
+        }
+        if (total > ledger.getBalance(senderId)) {
             throw new NotEnoughMoneyException("You don't have enough money to transfer!");
         }
 
-        if(userExists(receiver.getId())){
-            // add money to target
-            balanceDao.updateBalance(receiver.getId(), amount + targetBalance);
-             //subtract money from sender
-            balanceDao.updateBalance(sender.getId(), senderBalance - amount);
+        TransferItemStatus[] statuses = new TransferItemStatus[items.size()];
+        int[] paymentIds = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            TransferItem item = items.get(i);
+            if (item.getAmount() <= 0) {
+                statuses[i] = TransferItemStatus.INVALID_AMOUNT;
+            } else if (item.getReceiverId() == senderId) {
+                statuses[i] = TransferItemStatus.OWN_ACCOUNT;
+            } else {
+                try {
+                    ledger.transfer(senderId, item.getReceiverId(), item.getAmount());
+                    paymentIds[i] = IdAllocator.payments().nextId();
+                    paymentWriter.enqueue(new Payment(paymentIds[i], senderId, null, item.getReceiverId(), null,
+                            item.getAmount(), now));
+                    statuses[i] = TransferItemStatus.COMPLETED;
+                } catch (RecordNotFoundException e) {
+                    statuses[i] = TransferItemStatus.UNKNOWN_RECEIVER;
+                } catch (NotEnoughMoneyException e) {
+                    // money left the account after the batch was checked
+                    statuses[i] = TransferItemStatus.NOT_ENOUGH_MONEY;
+                }
+            }
         }
+        return new TransferBatchResult(statuses, paymentIds);
+    }
+
+    /**
+     * @return hit, miss and eviction counters of the balance cache
+     */
+    public CacheStats getBalanceCacheStats() {
+        return balanceDao.getCacheStats();
+    }
+
+    /**
+     * @return hit, miss and eviction counters of the customer name cache used by payment histories
+     */
+    public CacheStats getNameCacheStats() {
+        return customerDao.getNameCacheStats();
+    }
+
+    /**
+     * @return current state of the connection pool
+     */
+    public PoolMetrics getPoolMetrics() {
+        return ConnectionProvider.getInstance().getMetrics();
+    }
+
+    /**
+     * @return throughput and lock wait statistics of transfers
+     */
+    public TransferStats getTransferStats() {
+        return transferDao.getStats();
+    }
+
+    /**
+     * @return executions, latency and rows of every named statement, most total time first
+     */
+    public List<StatementStats> getStatementStats() {
+        return StatementRegistry.getInstance().getStats();
+    }
+
+    /**
+     * @return contention and checkpoint statistics of the in-memory ledger
+     */
+    public LedgerStats getLedgerStats() {
+        return ledger.getStats();
     }
 
     /**
@@ -160,50 +391,82 @@ public class CustomerService {
      * @param newPassword new password
      */
     public void changePassword(Customer customer, String newPassword) {
-        String oldPassword = customer.getPassword();
-        customer.setPassword(newPassword);
-        try {
-            customerDao.updateCustomer(customer);
-        } catch (Exception e) {
-            System.err.println("Failed to update pasword!");
-            customer.setPassword(oldPassword);
-            throw new FailedToUpdateRecordException("Failed to update password!");
-        }
+        CHANGE_PASSWORD_TIMER.run(() -> {
+            String oldPassword = customer.getPassword();
+            customer.setPassword(newPassword);
+            try {
+                customerDao.updateCustomer(customer);
+            } catch (Exception e) {
+                System.err.println("Failed to update pasword!");
+                customer.setPassword(oldPassword);
+                throw new FailedToUpdateRecordException("Failed to update password!");
+            }
+        });
     }
 
     /**
      * Gets customers current balance
      *
      * @param customer customer
-     * @return actual balance of the customer
+     * @return actual balance of the customer in minor units
      * @throws RecordNotFoundException no such record
      */
-    public double getCurrentBalance(Customer customer) throws RecordNotFoundException {
-        return balanceDao.getBalance(customer.getId());
+    public long getCurrentBalance(Customer customer) throws RecordNotFoundException {
+        return GET_BALANCE_TIMER.time(() -> {
+            if (LEDGER_ENABLED) {
+                return ledger.getBalance(customer.getId());
+            }
+            return balanceDao.getBalance(customer.getId()).getAmount();
+        });
     }
 
 
-    public int getHighestCustomerId() {
-        return customerDao.getLastId();
+    /**
+     * @return unused id for a new customer
+     */
+    public int nextCustomerId() {
+        return NEXT_CUSTOMER_ID_TIMER.time(() -> {
+            return IdAllocator.customers().nextId();
+        });
     }
 
 
     /**
-     * Gets list of payments (sent payments or received payments)
+     * Gets one page of payments (sent payments or received payments)
      *
      * @param customer              Payments from customer account
      * @param paymentHistoryType    Selecting sent or received payments
-     * @return                      List of chosen payments or empty list
-     */
-    public List<Payment> getListOfPayments(Customer customer, PaymentHistoryType paymentHistoryType) {
-        if (paymentHistoryType.equals(PaymentHistoryType.RECEIVED)) {
-            return paymentDAO.getReceivedPayments(customer.getId());
-        } else if (paymentHistoryType.equals(PaymentHistoryType.SEND)) {
-            return paymentDAO.getSentPayments(customer.getId());
-        } else {
-            System.err.println("Wrong payment type!");
-            return Collections.emptyList();
-        }
+     * @param after                 Cursor of the previous page, null for the first page
+     * @param pageSize              Maximum number of payments on the page
+     * @return                      Page of chosen payments, empty if there are none
+     */
+    public PaymentPage getPaymentsPage(Customer customer, PaymentHistoryType paymentHistoryType,
+                                       PaymentCursor after, int pageSize) {
+        return PAYMENTS_PAGE_TIMER.time(() -> {
+            if (paymentHistoryType.equals(PaymentHistoryType.RECEIVED)) {
+                return paymentDAO.getReceivedPayments(customer.getId(), after, pageSize);
+            } else if (paymentHistoryType.equals(PaymentHistoryType.SEND)) {
+                return paymentDAO.getSentPayments(customer.getId(), after, pageSize);
+            } else {
+                System.err.println("Wrong payment type!");
+                return new PaymentPage(Collections.emptyList(), null);
+            }
+        });
+    }
+
+    /**
+     * Gets sent and received totals of the latest months, read from the maintained summaries
+     * instead of summing the payments. Payments still queued by the payment writer are not included yet.
+     *
+     * @param customer      customer
+     * @param months        number of months, the current month included
+     * @return              summaries newest first, months without payments are left out
+     */
+    public List<PaymentSummary> getMonthlySummaries(Customer customer, int months) {
+        return MONTHLY_SUMMARIES_TIMER.time(() -> {
+            YearMonth current = YearMonth.now();
+            return paymentSummaryDao.getSummaries(customer.getId(), current.minusMonths(months - 1), current);
+        });
     }
 
     /**
@@ -214,34 +477,64 @@ public class CustomerService {
      * @throws RecordNotFoundException  if id does not match with any registered customer
      */
     public Customer getCustomer(int id) throws RecordNotFoundException {
-        try {
-            return customerDao.findCustomer(id);
-        } catch (RecordNotFoundException e) {
-            System.err.println(e);
-            throw e;
-        }
+        return GET_CUSTOMER_TIMER.time(() -> {
+            return customerDao.findById(id)
+                    .orElseThrow(() -> new RecordNotFoundException("Unable to find user with given ID!"));
+        });
     }
 
     /**
-     * Registers payment, inserting it into database
+     * Gets the name to show for a customer, e.g. the receiver of a payment
      *
-     * @param sender
-     * @param receiver
-     * @param amount
-     * @param time
-     * @param date
+     * @param id    id of the customer
+     * @return      display name, empty if id does not match any registered customer
      */
-    public void registerPayment(Customer sender, Customer receiver, double amount, String time, String date) {
-        try {
-            paymentDAO.createPayment(
-                    sender.getId(),
-                    receiver.getId(),
-                    amount,
-                    time,
-                    date
-            );
-        } catch (FailedToCreateRecordException e) {
-            System.err.println(e);
-        }
+    public Optional<String> findDisplayName(int id) {
+        return FIND_DISPLAY_NAME_TIMER.time(() -> {
+            return customerDao.findDisplayName(id);
+        });
+    }
+
+    /**
+     * Creates a payment repeated every few months, the first one is paid by the next run of the scheduler
+     *
+     * @param sender        who pays
+     * @param receiverId    id of the receiver
+     * @param amount        amount of every payment in minor units
+     * @param periodMonths  months between two payments
+     * @return the new standing order, its first payment is due at its first execution time
+     * @throws FailedToCreateRecordException if the order could not be stored
+     */
+    public StandingOrder createStandingOrder(Customer sender, int receiverId, long amount, int periodMonths)
+            throws FailedToCreateRecordException {
+        return CREATE_STANDING_ORDER_TIMER.time(() -> {
+            if (receiverId == sender.getId() || amount <= 0 || periodMonths <= 0) {
+                throw new IllegalArgumentException("Invalid standing order");
+            }
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+            int id = standingOrderDao.createOrder(sender.getId(), receiverId, amount, periodMonths, now);
+            return new StandingOrder(id, sender.getId(), receiverId, amount, periodMonths, now, now, null, null);
+        });
+    }
+
+    /**
+     * @param sender    who pays
+     * @return standing orders of the customer, oldest first
+     */
+    public List<StandingOrder> getStandingOrders(Customer sender) {
+        return STANDING_ORDERS_TIMER.time(() -> {
+            return standingOrderDao.getOrders(sender.getId());
+        });
+    }
+
+    /**
+     * @param sender    who pays
+     * @param id        id of the standing order
+     * @return true if the customer had such an order, it is not paid anymore
+     */
+    public boolean cancelStandingOrder(Customer sender, int id) {
+        return CANCEL_STANDING_ORDER_TIMER.time(() -> {
+            return standingOrderDao.deleteOrder(sender.getId(), id);
+        });
     }
 }